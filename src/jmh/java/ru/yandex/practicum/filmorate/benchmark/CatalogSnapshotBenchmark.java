@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.PersistentLongMap;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Коллекция фильмов: прежний ConcurrentSkipListMap и версии PersistentLongMap со структурным разделением.
+ * Чтение по id, полный обход и замена фильма, которая для дерева публикует новую версию.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx2g"})
+public class CatalogSnapshotBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private final ConcurrentSkipListMap<Long, Film> skipList = new ConcurrentSkipListMap<>();
+    private final AtomicReference<PersistentLongMap<Film>> trie = new AtomicReference<>(PersistentLongMap.empty());
+    private Film film;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        film = SyntheticData.newFilm();
+        PersistentLongMap<Film> map = PersistentLongMap.empty();
+        for (long id = 1; id <= size; id++) {
+            skipList.put(id, film);
+            map = map.with(id, film);
+        }
+        trie.set(map);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+    }
+
+    @Benchmark
+    public Film skipListGet(Cursor cursor) {
+        return skipList.get(1 + cursor.random.nextLong(size));
+    }
+
+    @Benchmark
+    public Film trieGet(Cursor cursor) {
+        return trie.get().get(1 + cursor.random.nextLong(size));
+    }
+
+    @Benchmark
+    public Film skipListPut(Cursor cursor) {
+        return skipList.put(1 + cursor.random.nextLong(size), film);
+    }
+
+    @Benchmark
+    public PersistentLongMap<Film> triePut(Cursor cursor) {
+        long id = 1 + cursor.random.nextLong(size);
+        return trie.updateAndGet(map -> map.with(id, film));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int skipListIterate() {
+        int count = 0;
+        for (Film value : skipList.values()) {
+            count += value.getDuration();
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int trieIterate() {
+        int count = 0;
+        for (Film value : trie.get().values()) {
+            count += value.getDuration();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.edge.PackedFriendshipMap;
+import ru.yandex.practicum.filmorate.storage.edge.SortedLongArrays;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сравнение поиска общих друзей: прежний способ (списки User и HashSet)
+ * и пересечение отсортированных массивов id с загрузкой только найденных пользователей.
+ * Размеры списков друзей задаются отдельно, чтобы проверить случай сильного перекоса.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+
+    private static final int USERS = 1_000_000;
+
+    @Param({"10", "1000"})
+    private int smallFriends;
+
+    @Param({"1000", "100000"})
+    private int largeFriends;
+
+    private final Map<Long, User> users = new HashMap<>();
+    private Map<Long, FriendshipStatus> smallHash;
+    private Map<Long, FriendshipStatus> largeHash;
+    private PackedFriendshipMap smallPacked;
+    private PackedFriendshipMap largePacked;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+        smallHash = randomFriends(random, smallFriends);
+        largeHash = randomFriends(random, largeFriends);
+        // Половина друзей меньшего списка гарантированно общая
+        smallHash.keySet().stream()
+                .limit(smallFriends / 2)
+                .toList()
+                .forEach(id -> largeHash.put(id, FriendshipStatus.CONFIRMED));
+        smallPacked = new PackedFriendshipMap(smallHash);
+        largePacked = new PackedFriendshipMap(largeHash);
+        for (long id = 1; id <= USERS; id++) {
+            User user = new User("user" + id + "@mail.ru", "user" + id, LocalDate.of(1990, 1, 1));
+            user.setIdUser(id);
+            users.put(id, user);
+        }
+    }
+
+    @Benchmark
+    public List<User> hashSetFilter() {
+        List<User> friends1 = friends(smallHash);
+        Set<Long> friendsIds1 = friends1.stream()
+                .map(User::getIdUser)
+                .collect(Collectors.toSet());
+        return friends(largeHash).stream()
+                .filter(friend -> friendsIds1.contains(friend.getIdUser()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<User> sortedIntersect() {
+        long[] commonIds = SortedLongArrays.intersect(smallPacked.confirmedIds(), largePacked.confirmedIds());
+        List<User> result = new ArrayList<>(commonIds.length);
+        for (long id : commonIds) {
+            result.add(users.get(id));
+        }
+        return result;
+    }
+
+    // Прежняя реализация findAllFriendsUser
+    private List<User> friends(Map<Long, FriendshipStatus> friendship) {
+        return friendship.entrySet().stream()
+                .filter(entry -> entry.getValue() == FriendshipStatus.CONFIRMED)
+                .map(Map.Entry::getKey)
+                .map(id -> Optional.ofNullable(users.get(id)))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, FriendshipStatus> randomFriends(SplittableRandom random, int count) {
+        Map<Long, FriendshipStatus> friends = new HashMap<>();
+        while (friends.size() < count) {
+            friends.put(1 + random.nextLong(USERS), FriendshipStatus.CONFIRMED);
+        }
+        return friends;
+    }
+}
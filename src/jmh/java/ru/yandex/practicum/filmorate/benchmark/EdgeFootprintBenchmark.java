@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.storage.edge.LongArraySet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение объёма памяти под лайки: множество Long на ConcurrentHashMap и компактный LongArraySet.
+ * Размер графа объектов (байт на лайк) печатается после замеров, сами замеры - скорость проверки лайка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Djdk.attach.allowAttachSelf=true"})
+public class EdgeFootprintBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"10000000"})
+    private int likes;
+
+    @Param({"hash", "compact"})
+    private String store;
+
+    private final List<Set<Long>> filmLikes = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Set<Long>> source = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            source.add(ConcurrentHashMap.newKeySet());
+        }
+        int added = 0;
+        while (added < likes) {
+            int film = (int) SyntheticData.skewed(random, FILMS);
+            if (source.get(film).add(1 + random.nextLong(USERS))) {
+                added++;
+            }
+        }
+        for (Set<Long> set : source) {
+            filmLikes.add("compact".equals(store) ? new LongArraySet(set) : set);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printFootprint() {
+        long bytes = GraphLayout.parseInstance(filmLikes.toArray()).totalSize();
+        System.out.printf("%n%s: %d лайков занимают %d МБ, %.1f байт на лайк%n",
+                store, likes, bytes / (1024 * 1024), (double) bytes / likes);
+    }
+
+    @Benchmark
+    public boolean containsLike() {
+        Set<Long> set = filmLikes.get((int) SyntheticData.skewed(random, FILMS));
+        return set.contains(1 + random.nextLong(USERS));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.storage.edge.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.edge.PackedFriendshipMap;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Набор лайков популярного фильма и друзей популярного пользователя по одному: id приходят
+ * в случайном порядке, поэтому вставки идут в середину отсортированного хранения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EdgeInsertBenchmark {
+
+    @Param({"1000", "100000"})
+    private int edges;
+
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+        ids = random.longs(edges, 1, 10_000_000).toArray();
+    }
+
+    @Benchmark
+    public LongArraySet addLikes() {
+        LongArraySet likes = new LongArraySet();
+        for (long id : ids) {
+            likes.add(id);
+        }
+        return likes;
+    }
+
+    @Benchmark
+    public PackedFriendshipMap addAndConfirmFriends() {
+        PackedFriendshipMap friends = new PackedFriendshipMap();
+        for (long id : ids) {
+            friends.put(id, FriendshipStatus.PENDING);
+        }
+        for (long id : ids) {
+            friends.put(id, FriendshipStatus.CONFIRMED);
+        }
+        return friends;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Чтение ленты пользователя с большим числом друзей: буферы всех друзей заполнены,
+ * события записаны вперемешку, чтобы слияние действительно переключалось между буферами.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+    private static final int CAPACITY = 100;
+
+    @Param({"100", "1000", "5000"})
+    private int friends;
+
+    @Param({"50", "1000"})
+    private int limit;
+
+    private ActivityFeed feed;
+    private List<Long> friendIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        feed = new ActivityFeed(CAPACITY);
+        friendIds = LongStream.rangeClosed(2, friends + 1).boxed().toList();
+        SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+        for (int i = 0; i < friends * CAPACITY; i++) {
+            feed.record(2 + random.nextInt(friends), EventType.LIKE, EventOperation.ADD, random.nextLong(1_000_000));
+        }
+    }
+
+    @Benchmark
+    public List<Event> readFeed() {
+        return feed.feed(1, friendIds, limit);
+    }
+}
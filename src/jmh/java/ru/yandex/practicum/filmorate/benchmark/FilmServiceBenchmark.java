@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк FilmService на синтетических наборах разного размера.
+ * Пропускная способность create не должна падать с ростом коллекции.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class FilmServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private SyntheticData data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = SyntheticData.generate(size);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+    }
+
+    @Benchmark
+    public List<Film> topFilms() {
+        return data.filmService().topFilms(10);
+    }
+
+    @Benchmark
+    public void addLikes(Cursor cursor) {
+        data.filmService().addLikes(data.skewedId(cursor.random), data.uniformId(cursor.random));
+    }
+
+    @Benchmark
+    public Film create() {
+        return data.filmService().create(SyntheticData.newFilm());
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.persistence.PersistenceManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность изменений с журналом на диске и без него.
+ * Несколько потоков пишут одновременно, поэтому с fsync видно действие группового сброса:
+ * одна операция force на диск подтверждает записи сразу многих потоков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@Threads(8)
+public class JournalWriteBenchmark {
+
+    @Param({"none", "journal", "journal-fsync"})
+    private String persistence;
+
+    private SyntheticData data;
+    private PersistenceManager manager;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = SyntheticData.generate(100_000);
+        if (!"none".equals(persistence)) {
+            directory = Files.createTempDirectory("filmorate-journal");
+            manager = new PersistenceManager(data.filmStorage(), data.userStorage(), directory,
+                    "journal-fsync".equals(persistence), Duration.ofDays(1));
+            manager.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (manager != null) {
+            manager.stop();
+            RecoveryBenchmark.deleteDirectory(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public void addLike(Cursor cursor) {
+        data.filmStorage().addLike(data.skewedId(cursor.random), data.uniformId(cursor.random));
+    }
+
+    @Benchmark
+    public Film create() {
+        return data.filmStorage().create(SyntheticData.newFilm());
+    }
+}
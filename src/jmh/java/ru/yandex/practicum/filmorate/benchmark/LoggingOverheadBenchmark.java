@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Цена логирования на запрос: обычный режим (Logbook на TRACE для каждого запроса, синхронный вывод)
+ * и профиль lean-logging (асинхронный вывод, тела только для выборки запросов).
+ * Вывод логов перенаправляется в файл, чтобы запись шла на диск, а не в консоль JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx2g"})
+public class LoggingOverheadBenchmark {
+
+    private static final int SIZE = 10_000;
+    // У первых фильмов много лайков, чтобы ответы и обновления были заметного размера
+    private static final int POPULAR_FILMS = 100;
+    private static final int LIKES_PER_POPULAR_FILM = 500;
+
+    @Param({"default", "lean-logging"})
+    private String profile;
+
+    private ServletWebServerApplicationContext context;
+    private PrintStream stdout;
+    private Path logFile;
+    private HttpClient client;
+    private String baseUrl;
+    private String likesJson;
+    private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stdout = System.out;
+        logFile = Files.createTempFile("filmorate-log", ".log");
+        System.setOut(new PrintStream(new FileOutputStream(logFile.toFile()), false));
+        context = (ServletWebServerApplicationContext) SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--spring.profiles.active=" + profile);
+        InMemoryUserStorage userStorage = context.getBean(InMemoryUserStorage.class);
+        InMemoryFilmStorage filmStorage = context.getBean(InMemoryFilmStorage.class);
+        List<User> users = new ArrayList<>(SIZE);
+        List<Film> films = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            users.add(SyntheticData.newUser());
+            films.add(SyntheticData.newFilm());
+        }
+        userStorage.createAll(users);
+        filmStorage.createAll(films);
+        for (long filmId = 1; filmId <= POPULAR_FILMS; filmId++) {
+            for (long userId = 1; userId <= LIKES_PER_POPULAR_FILM; userId++) {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+        likesJson = LongStream.rangeClosed(1, LIKES_PER_POPULAR_FILM)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(",", "[", "]"));
+        baseUrl = "http://localhost:" + context.getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        context.close();
+        System.out.close();
+        System.setOut(stdout);
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public int getPopularFilm() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + (1 + random.nextInt(POPULAR_FILMS))))
+                .GET());
+    }
+
+    @Benchmark
+    public int addLike() throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films/" + (1 + random.nextInt(SIZE))
+                        + "/like/" + (1 + random.nextInt(SIZE))))
+                .PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    @Benchmark
+    public int updatePopularFilm() throws Exception {
+        long filmId = 1 + random.nextInt(POPULAR_FILMS);
+        String body = "{\"idFilm\":" + filmId + ",\"nameFilm\":\"Фильм " + filmId + "\","
+                + "\"description\":\"Обновленное описание\",\"releaseDate\":\"2000-01-01\","
+                + "\"duration\":120,\"rating\":\"PG_13\",\"likes\":" + likesJson + "}";
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/films"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private int send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.metrics.MetricsAspect;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmValidator;
+import ru.yandex.practicum.filmorate.service.TrendingCounters;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.UserValidator;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена метрик на горячих путях: те же операции FilmService без аспекта и с MetricsAspect
+ * на сервисах и хранилищах, как в приложении. Метрики пишутся в реестр Prometheus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class MetricsOverheadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean instrumented;
+
+    private SyntheticData data;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = SyntheticData.generate(100_000);
+        EntityVersions versions = new EntityVersions();
+        ActivityFeed feed = new ActivityFeed(100);
+        MetricsAspect aspect = new MetricsAspect(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        FilmStorage filmStorage = instrument(data.filmStorage(), aspect);
+        UserStorage userStorage = instrument(data.userStorage(), aspect);
+        UserService userService = instrument(new UserService(userStorage, new UserValidator(), versions, feed), aspect);
+        filmService = instrument(new FilmService(filmStorage, userService, new FilmValidator(), versions,
+                new TrendingCounters(Duration.ofHours(1), Duration.ofDays(7)), feed, 20), aspect);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+    }
+
+    @Benchmark
+    public Optional<Film> getFilm(Cursor cursor) {
+        return filmService.getFilm(data.uniformId(cursor.random));
+    }
+
+    @Benchmark
+    public List<Film> topFilms() {
+        return filmService.topFilms(10);
+    }
+
+    @Benchmark
+    public void addLikes(Cursor cursor) {
+        filmService.addLikes(data.skewedId(cursor.random), data.uniformId(cursor.random));
+    }
+
+    // Прокси с аспектом, как его создает Spring для бинов
+    private <T> T instrument(T target, MetricsAspect aspect) {
+        if (!instrumented) {
+            return target;
+        }
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ActivityFeed;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmValidator;
+import ru.yandex.practicum.filmorate.service.TrendingCounters;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.UserValidator;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Синтетический набор данных для бенчмарков.
+ * Количество лайков и друзей, а также выбор популярных фильмов и пользователей подчиняются
+ * степенному распределению: большинство сущностей почти без связей, немногие - с очень большим их числом.
+ * Для наборов от 1 000 000 сущностей нужен соответствующий размер кучи (-Xmx).
+ */
+public final class SyntheticData {
+
+    public static final long SEED = 42;
+
+    // Показатель степени: чем больше, тем сильнее связи концентрируются на первых id
+    private static final double SKEW = 3.0;
+    private static final int MAX_LIKES_PER_USER = 50;
+    private static final int MAX_FRIENDS_PER_USER = 200;
+
+    private static final AtomicLong UNIQUE = new AtomicLong();
+
+    private final int size;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final UserService userService;
+    private final FilmService filmService;
+
+    private SyntheticData(int size, boolean compactEdges) {
+        this.size = size;
+        this.filmStorage = new InMemoryFilmStorage(compactEdges);
+        this.userStorage = new InMemoryUserStorage(compactEdges);
+        EntityVersions versions = new EntityVersions();
+        ActivityFeed feed = new ActivityFeed(100);
+        this.userService = new UserService(userStorage, new UserValidator(), versions, feed);
+        this.filmService = new FilmService(filmStorage, userService, new FilmValidator(), versions,
+                new TrendingCounters(Duration.ofHours(1), Duration.ofDays(7)), feed, 20);
+    }
+
+    // Набор из size пользователей и size фильмов со степенным распределением лайков и дружбы
+    public static SyntheticData generate(int size) {
+        return generate(size, true);
+    }
+
+    public static SyntheticData generate(int size, boolean compactEdges) {
+        SyntheticData data = new SyntheticData(size, compactEdges);
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < size; i++) {
+            data.userStorage.create(newUser());
+            data.filmStorage.create(newFilm());
+        }
+        for (long userId = 1; userId <= size; userId++) {
+            int likes = 1 + (int) skewed(random, MAX_LIKES_PER_USER);
+            for (int i = 0; i < likes; i++) {
+                data.filmStorage.addLike(data.skewedId(random), userId);
+            }
+            int friends = (int) skewed(random, Math.min(MAX_FRIENDS_PER_USER, size - 1));
+            for (int i = 0; i < friends; i++) {
+                long friendId = data.skewedId(random);
+                if (friendId != userId) {
+                    data.userStorage.addFriend(userId, friendId);
+                    data.userStorage.confirmFriendship(friendId, userId);
+                }
+            }
+        }
+        return data;
+    }
+
+    // Значение из [0, bound) со степенным распределением, смещённым к нулю
+    public static long skewed(SplittableRandom random, long bound) {
+        if (bound <= 0) {
+            return 0;
+        }
+        return Math.min(bound - 1, (long) (bound * Math.pow(random.nextDouble(), SKEW)));
+    }
+
+    // Id сущности: популярные (малые) id выпадают чаще
+    public long skewedId(SplittableRandom random) {
+        return 1 + skewed(random, size);
+    }
+
+    // Id сущности с равномерным распределением
+    public long uniformId(SplittableRandom random) {
+        return 1 + random.nextLong(size);
+    }
+
+    public static Film newFilm() {
+        long number = UNIQUE.incrementAndGet();
+        Film film = new Film("Фильм " + number, "Описание фильма " + number, LocalDate.of(2000, 1, 1),
+                MotionPictureAssociation.PG_13);
+        film.setDuration(90);
+        return film;
+    }
+
+    public static User newUser() {
+        long number = UNIQUE.incrementAndGet();
+        return new User("user" + number + "@mail.ru", "user" + number, LocalDate.of(1990, 1, 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public FilmService filmService() {
+        return filmService;
+    }
+
+    public UserService userService() {
+        return userService;
+    }
+
+    public InMemoryFilmStorage filmStorage() {
+        return filmStorage;
+    }
+
+    public InMemoryUserStorage userStorage() {
+        return userStorage;
+    }
+}
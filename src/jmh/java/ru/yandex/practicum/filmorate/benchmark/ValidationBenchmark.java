@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmValidator;
+import ru.yandex.practicum.filmorate.service.UserValidator;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка корректных фильма и пользователя: Bean Validation с последующими проверками сервиса,
+ * как было раньше, и однопроходные FilmValidator и UserValidator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 25);
+
+    private Validator beanValidator;
+    private FilmValidator filmValidator;
+    private UserValidator userValidator;
+    private Film film;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+        filmValidator = new FilmValidator();
+        userValidator = new UserValidator();
+        film = SyntheticData.newFilm();
+        user = SyntheticData.newUser();
+    }
+
+    @Benchmark
+    public boolean filmBeanValidation() {
+        Set<ConstraintViolation<Film>> violations = beanValidator.validate(film);
+        return violations.isEmpty() && film.getReleaseDate().isAfter(FIRST_FILM_DATE);
+    }
+
+    @Benchmark
+    public String filmPrecompiled() {
+        return filmValidator.findError(film);
+    }
+
+    @Benchmark
+    public boolean userBeanValidation() {
+        Set<ConstraintViolation<User>> violations = beanValidator.validate(user);
+        return violations.isEmpty() && user.getName() != null && !user.getName().isBlank();
+    }
+
+    @Benchmark
+    public String userPrecompiled() {
+        return userValidator.findError(user);
+    }
+}
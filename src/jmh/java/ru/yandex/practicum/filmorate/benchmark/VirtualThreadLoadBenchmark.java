@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Нагрузочное сравнение обработки запросов в пуле потоков Tomcat и в виртуальных потоках.
+ * Приложение запускается целиком на случайном порту, за одну операцию бенчмарка одновременно
+ * отправляется CONCURRENCY запросов лайков или дружбы - больше, чем потоков в пуле Tomcat по умолчанию (200).
+ * Без журнала запросы не ждут ввода-вывода и режимы почти не отличаются; с журналом и fsync
+ * каждый запрос ждет сброса на диск, и пул потоков становится узким местом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class VirtualThreadLoadBenchmark {
+
+    private static final int CONCURRENCY = 1000;
+    private static final int SIZE = 10_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"memory", "journal-fsync"})
+    private String persistence;
+
+    private ServletWebServerApplicationContext context;
+    private Path directory;
+    private HttpClient client;
+    private ExecutorService senders;
+    private String baseUrl;
+    private final SplittableRandom random = new SplittableRandom(SyntheticData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("filmorate-load");
+        context = (ServletWebServerApplicationContext) SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                // Соединения клиентов переиспользуются, а не открываются заново каждые 100 запросов
+                "--server.tomcat.max-keep-alive-requests=-1",
+                "--server.tomcat.accept-count=" + CONCURRENCY,
+                "--spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                "--filmorate.persistence.enabled=" + "journal-fsync".equals(persistence),
+                "--filmorate.persistence.directory=" + directory,
+                "--filmorate.persistence.fsync=true",
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF");
+        List<User> users = new ArrayList<>(SIZE);
+        List<Film> films = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            users.add(SyntheticData.newUser());
+            films.add(SyntheticData.newFilm());
+        }
+        context.getBean(InMemoryUserStorage.class).createAll(users);
+        context.getBean(InMemoryFilmStorage.class).createAll(films);
+        baseUrl = "http://localhost:" + context.getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // Клиенты - виртуальные потоки, чтобы узким местом был сервер, а не генератор нагрузки
+        senders = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        senders.close();
+        client.close();
+        context.close();
+        RecoveryBenchmark.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int likes() throws Exception {
+        return sendConcurrently(request -> "/films/" + nextId() + "/like/" + nextId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int friends() throws Exception {
+        return sendConcurrently(request -> {
+            long userId = nextId();
+            long friendId = userId % SIZE + 1;
+            return "/users/" + userId + "/friends/" + friendId;
+        });
+    }
+
+    // Одновременная отправка CONCURRENCY PUT-запросов, возвращает число успешных ответов
+    private int sendConcurrently(LongFunction<String> path) throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path.apply(i)))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            responses.add(senders.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding())
+                    .statusCode()));
+        }
+        int succeeded = 0;
+        for (Future<Integer> response : responses) {
+            if (response.get() < 300) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    private long nextId() {
+        return 1 + random.nextLong(SIZE);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кодирование и декодирование ответов в JSON и CBOR: фильм с большим числом лайков,
+ * пользователь с большим числом друзей и страница из 100 фильмов.
+ * Размер закодированного ответа печатается при подготовке каждого набора параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final int LINKS = 1000;
+    private static final int PAGE_SIZE = 100;
+    private static final int PAGE_LIKES = 50;
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    @Param({"film", "user", "films"})
+    private String payload;
+
+    private ObjectMapper mapper;
+    private JavaType type;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Настройки как у маппера приложения: даты строкой, модули Java Time и имён параметров
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        mapper = builder.build();
+        switch (payload) {
+            case "film" -> {
+                value = filmWithLikes(LINKS);
+                type = mapper.constructType(Film.class);
+            }
+            case "user" -> {
+                User user = SyntheticData.newUser();
+                for (long id = 1; id <= LINKS; id++) {
+                    user.getFriendship().put(id * 7, id % 3 == 0 ? FriendshipStatus.PENDING : FriendshipStatus.CONFIRMED);
+                }
+                value = user;
+                type = mapper.constructType(User.class);
+            }
+            default -> {
+                List<Film> films = new ArrayList<>(PAGE_SIZE);
+                for (int i = 0; i < PAGE_SIZE; i++) {
+                    films.add(filmWithLikes(PAGE_LIKES));
+                }
+                value = films;
+                type = mapper.getTypeFactory().constructCollectionType(List.class, Film.class);
+            }
+        }
+        encoded = mapper.writeValueAsBytes(value);
+        System.out.println(format + " " + payload + ": " + encoded.length + " байт");
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+    private static Film filmWithLikes(int likes) {
+        Film film = SyntheticData.newFilm();
+        film.setIdFilm((long) likes);
+        for (long id = 1; id <= likes; id++) {
+            film.getLikes().add(id * 13);
+        }
+        return film;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Двоичный формат CBOR для внутренних клиентов: запросы и ответы с типом application/cbor.
+ * JSON остаётся форматом по умолчанию, CBOR выбирается по заголовкам Accept и Content-Type.
+ */
+@Configuration
+public class CborConfig {
+
+    // Маппер строится тем же билдером, что и JSON: те же модули и настройки дат
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
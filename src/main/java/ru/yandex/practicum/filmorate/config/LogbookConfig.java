@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Выборочное логирование HTTP-запросов через Logbook.
+ * Для запросов, не попавших в выборку, тела не буферизуются и не пишутся в лог.
+ */
+@Configuration
+public class LogbookConfig {
+
+    // Заменяет условие Logbook по умолчанию, исключения из logbook.predicate применяются поверх него
+    @Bean
+    public Predicate<HttpRequest> requestCondition(
+            @Value("${filmorate.logging.body-sample-rate:1}") double sampleRate) {
+        if (sampleRate >= 1) {
+            return request -> true;
+        }
+        return request -> ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -1,46 +1,75 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final JsonResponseCache responseCache;
+    private final EntityVersions versions;
 
     @Autowired
-    private FilmController(FilmService filmService) {
+    private FilmController(FilmService filmService, ObjectMapper objectMapper, JsonResponseCache responseCache,
+                           EntityVersions versions) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.versions = versions;
     }
 
+    // Без параметров выводится вся коллекция, с after/limit - страница по возрастанию id
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public Collection<Film> findAll(@RequestParam(required = false) @Min(0) Long after,
+                                   @RequestParam(required = false) @Min(1) Integer limit) {
+        if (after == null && limit == null) {
+            return filmService.findAll();
+        }
+        return filmService.findPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        return NdjsonStreams.stream(objectMapper, filmService::findPage, Film::getIdFilm);
     }
 
     @PostMapping
-    public Film create(@Valid @RequestBody Film film) {
+    public Film create(@RequestBody Film film) {
         return filmService.create(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchResult> createAll(@RequestBody List<Film> films) {
+        return filmService.createAll(films);
+    }
+
     @PutMapping
-    public Film update(@Valid @RequestBody Film newFilm) {
+    public Film update(@RequestBody Film newFilm) {
         return filmService.update(newFilm);
     }
 
     @GetMapping("/{id}")
-    public Optional<Film> getFilm(@PathVariable Long id) {
-        return filmService.getFilm(id);
+    public ResponseEntity<byte[]> getFilm(@PathVariable Long id, WebRequest request) {
+        return responseCache.respond("film:" + id, versions.film(id), request, () -> filmService.getFilm(id));
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -48,13 +77,36 @@ public class FilmController {
         filmService.addLikes(id, userId);
     }
 
+    @PutMapping("/likes/batch")
+    public List<BatchResult> addLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
     @DeleteMapping("/{id}/like/{userId}")
     public void delLikes(@PathVariable Long id, @PathVariable Long userId) {
         filmService.delLikes(id, userId);
     }
 
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String q, @RequestParam(defaultValue = "10") @Min(1) Integer count) {
+        return filmService.search(q, count);
+    }
+
+    // Фильмы с наибольшим числом лайков за последний период window, например 24h или 7d
+    @GetMapping("/trending")
+    public List<Film> trending(@RequestParam(defaultValue = "24h") String window,
+                               @RequestParam(defaultValue = "10") @Min(1) Integer count) {
+        return filmService.trending(window, count);
+    }
+
     @GetMapping("/popular")
-    public List<Film> topFilms(@RequestParam(defaultValue = "10") @Min(1) Integer count) {
-        return filmService.topFilms(count);
+    public ResponseEntity<byte[]> topFilms(@RequestParam(defaultValue = "10") @Min(1) Integer count,
+                                           @RequestParam(required = false) @Min(1) Long genreId,
+                                           @RequestParam(required = false) String rating,
+                                           @RequestParam(required = false) @Min(1895) Integer year,
+                                           WebRequest request) {
+        String key = "popular:" + count + ":" + genreId + ":" + rating + ":" + year;
+        return responseCache.respond(key, versions.filmCatalog(), request,
+                () -> versions.buildPopular(count, () -> filmService.topFilms(count, genreId, rating, year)));
     }
 }
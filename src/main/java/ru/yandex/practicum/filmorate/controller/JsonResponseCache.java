@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кэш готовых JSON-ответов для часто читаемых эндпоинтов.
+ * Ответ хранится вместе с версией данных, из которой он построен; при смене версии он строится заново.
+ * Версия же служит ETag: если клиент прислал If-None-Match с текущей версией,
+ * отвечаем 304 без обращения к хранилищу и без сериализации.
+ * Клиентам, предпочитающим application/cbor, ответ отдаётся и кэшируется отдельно в формате CBOR.
+ */
+@Component
+public class JsonResponseCache {
+
+    // ETag включает момент запуска: после перезапуска счётчики версий начинаются заново
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final Cache<String, CachedJson> cache;
+
+    @Autowired
+    public JsonResponseCache(ObjectMapper objectMapper, MappingJackson2CborHttpMessageConverter cborConverter,
+                             @Value("${filmorate.response-cache.maximum-bytes:67108864}") long maximumBytes) {
+        this.objectMapper = objectMapper;
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((String key, CachedJson json) -> json.body().length)
+                .build();
+    }
+
+    /**
+     * Ответ для ресурса key. Версию нужно получить до чтения данных: если данные изменятся во время
+     * построения ответа, он сохранится под старой версией и будет перестроен при следующем запросе.
+     */
+    public ResponseEntity<byte[]> respond(String key, long version, WebRequest request, Supplier<?> loader) {
+        boolean cbor = prefersCbor(request.getHeader(HttpHeaders.ACCEPT));
+        String etag = "\"" + epoch + "-" + Long.toString(version, Character.MAX_RADIX) + (cbor ? "-cbor\"" : "\"");
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        String cacheKey = cbor ? key + ":cbor" : key;
+        CachedJson cached = cache.getIfPresent(cacheKey);
+        if (cached == null || cached.version() != version) {
+            cached = new CachedJson(version, serialize(cbor ? cborMapper : objectMapper, loader.get()));
+            cache.put(cacheKey, cached);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                .body(cached.body());
+    }
+
+    // CBOR отдаётся, только если он идёт в Accept раньше JSON; без упоминания cbor заголовок не разбирается
+    private static boolean prefersCbor(String accept) {
+        if (accept == null || !accept.contains("cbor")) {
+            return false;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(mediaTypes);
+            for (MediaType mediaType : mediaTypes) {
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return false;
+                }
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
+
+    private static byte[] serialize(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record CachedJson(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потоковая выдача коллекций в формате NDJSON (один JSON-объект на строку).
+ * Коллекция читается из хранилища страницами по id, поэтому в памяти одновременно
+ * находится не больше одной страницы независимо от размера каталога.
+ */
+final class NdjsonStreams {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int PAGE_SIZE = 500;
+
+    private NdjsonStreams() {
+    }
+
+    static <T> StreamingResponseBody stream(ObjectMapper objectMapper,
+                                            BiFunction<Long, Integer, List<T>> pageLoader,
+                                            ToLongFunction<T> idExtractor) {
+        ObjectWriter writer = objectMapper.writer();
+        return out -> {
+            long after = 0;
+            List<T> page = pageLoader.apply(after, PAGE_SIZE);
+            while (!page.isEmpty()) {
+                for (T item : page) {
+                    out.write(writer.writeValueAsBytes(item));
+                    out.write('\n');
+                }
+                out.flush();
+                after = idExtractor.applyAsLong(page.getLast());
+                page = page.size() < PAGE_SIZE ? List.of() : pageLoader.apply(after, PAGE_SIZE);
+            }
+        };
+    }
+}
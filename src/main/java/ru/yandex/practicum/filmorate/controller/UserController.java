@@ -1,10 +1,19 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EntityVersions;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
@@ -15,25 +24,51 @@ import java.util.Optional;
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final JsonResponseCache responseCache;
+    private final EntityVersions versions;
 
     @Autowired
-    private UserController(UserService userService) {
+    private UserController(UserService userService, FilmService filmService, ObjectMapper objectMapper,
+                           JsonResponseCache responseCache, EntityVersions versions) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.versions = versions;
     }
 
+    // Без параметров выводится вся коллекция, с after/limit - страница по возрастанию id
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public Collection<User> findAll(@RequestParam(required = false) @Min(0) Long after,
+                                    @RequestParam(required = false) @Min(1) Integer limit) {
+        if (after == null && limit == null) {
+            return userService.findAll();
+        }
+        return userService.findPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(produces = NdjsonStreams.MEDIA_TYPE)
+    public StreamingResponseBody streamAll() {
+        return NdjsonStreams.stream(objectMapper, userService::findPage, User::getIdUser);
     }
 
     @PostMapping
-    public User create(@Valid @RequestBody User user) {
+    public User create(@RequestBody User user) {
         return userService.create(user);
     }
 
+    @PostMapping("/batch")
+    public List<BatchResult> createAll(@RequestBody List<User> users) {
+        return userService.createAll(users);
+    }
+
     @PutMapping
-    public User update(@Valid @RequestBody User newUser) {
+    public User update(@RequestBody User newUser) {
         return userService.update(newUser);
     }
 
@@ -47,14 +82,39 @@ public class UserController {
         userService.addFriend(id, friendId);
     }
 
+    @PutMapping("/friends/batch")
+    public List<BatchResult> addFriends(@RequestBody List<FriendRequest> requests) {
+        return userService.addFriends(requests);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFriend(@PathVariable @Min(1) Long id, @PathVariable @Min(1) Long friendId) {
         userService.removeFriend(id, friendId);
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> findAllFriendsUser(@PathVariable @Min(1) Long id) {
-        return userService.findAllFriendsUser(id);
+    public ResponseEntity<byte[]> findAllFriendsUser(@PathVariable @Min(1) Long id, WebRequest request) {
+        return responseCache.respond("friends:" + id, versions.friendList(id), request,
+                () -> userService.findAllFriendsUser(id));
+    }
+
+    // Последние события пользователя и его друзей: лайки и изменения дружбы
+    @GetMapping("/{id}/feed")
+    public List<Event> findFeed(@PathVariable @Min(1) Long id,
+                                @RequestParam(defaultValue = "50") @Min(1) Integer limit) {
+        return userService.findFeed(id, limit);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> findFriendSuggestions(@PathVariable @Min(1) Long id,
+                                            @RequestParam(defaultValue = "10") @Min(1) Integer count) {
+        return userService.findFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> findRecommendations(@PathVariable @Min(1) Long id,
+                                          @RequestParam(defaultValue = "10") @Min(1) Integer count) {
+        return filmService.findRecommendations(id, count);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
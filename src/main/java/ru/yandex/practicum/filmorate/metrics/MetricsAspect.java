@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики всех операций сервисов и хранилищ: гистограмма времени выполнения,
+ * размер возвращаемых коллекций и количество ошибок по типу исключения.
+ * Метрики метода регистрируются при первом вызове и дальше берутся из карты класса цели по Method,
+ * поэтому на каждом вызове нет поиска в реестре, сборки тегов и создания ключей.
+ * Кэширующие обёртки хранилищ измеряются отдельно (filmorate.cache): в filmorate.storage попадают
+ * только обращения к самому хранилищу, без попаданий в кэш и без повторного учёта одного вызова.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+    private static final String SERVICE = "service";
+    private static final String STORAGE = "storage";
+    private static final String CACHE = "cache";
+    // Границы гистограмм: операции in-memory хранилищ занимают микросекунды, запросы в БД - миллисекунды
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(1_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final MeterRegistry registry;
+    // Метрики методов по классу цели: Method интерфейса хранилища общий для всех его реализаций
+    private final ClassValue<Map<Method, MethodMeters>> meters = new ClassValue<>() {
+        @Override
+        protected Map<Method, MethodMeters> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    @Autowired
+    public MetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service.*Service.*(..))")
+    public Object measureService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure(joinPoint, SERVICE);
+    }
+
+    @Around("(execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..)))"
+            + " && !within(ru.yandex.practicum.filmorate.storage..Caching*)")
+    public Object measureStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure(joinPoint, STORAGE);
+    }
+
+    @Around("(execution(* ru.yandex.practicum.filmorate.storage.film.FilmStorage.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.user.UserStorage.*(..)))"
+            + " && within(ru.yandex.practicum.filmorate.storage..Caching*)")
+    public Object measureCache(ProceedingJoinPoint joinPoint) throws Throwable {
+        return measure(joinPoint, CACHE);
+    }
+
+    private Object measure(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> target = joinPoint.getTarget().getClass();
+        Map<Method, MethodMeters> targetMeters = meters.get(target);
+        MethodMeters methodMeters = targetMeters.get(method);
+        if (methodMeters == null) {
+            methodMeters = targetMeters.computeIfAbsent(method, newMethod -> register(layer, target, newMethod));
+        }
+        long startedAt = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.recordSize(result);
+            return result;
+        } catch (Throwable e) {
+            methodMeters.error(e);
+            throw e;
+        } finally {
+            methodMeters.timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private MethodMeters register(String layer, Class<?> target, Method method) {
+        String className = target.getSimpleName();
+        String methodName = method.getName();
+        Timer timer = Timer.builder("filmorate." + layer)
+                .description("Время выполнения операций")
+                .tags("class", className, "method", methodName)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+        Class<?> returnType = method.getReturnType();
+        DistributionSummary size = Collection.class.isAssignableFrom(returnType)
+                || Map.class.isAssignableFrom(returnType)
+                ? DistributionSummary.builder("filmorate." + layer + ".result.size")
+                .description("Количество элементов в результате")
+                .tags("class", className, "method", methodName)
+                .publishPercentileHistogram()
+                .register(registry)
+                : null;
+        return new MethodMeters(registry, "filmorate." + layer + ".errors", className, methodName, timer, size);
+    }
+
+    private static final class MethodMeters {
+
+        private final MeterRegistry registry;
+        private final String errorsName;
+        private final String className;
+        private final String methodName;
+        private final Timer timer;
+        private final DistributionSummary size;
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        private MethodMeters(MeterRegistry registry, String errorsName, String className, String methodName,
+                             Timer timer, DistributionSummary size) {
+            this.registry = registry;
+            this.errorsName = errorsName;
+            this.className = className;
+            this.methodName = methodName;
+            this.timer = timer;
+            this.size = size;
+        }
+
+        private void recordSize(Object result) {
+            if (size == null || result == null) {
+                return;
+            }
+            size.record(result instanceof Collection<?> collection ? collection.size() : ((Map<?, ?>) result).size());
+        }
+
+        private void error(Throwable e) {
+            errors.computeIfAbsent(e.getClass(), type -> Counter.builder(errorsName)
+                    .description("Количество ошибок по типу исключения")
+                    .tags("class", className, "method", methodName, "exception", type.getSimpleName())
+                    .register(registry))
+                    .increment();
+        }
+    }
+}
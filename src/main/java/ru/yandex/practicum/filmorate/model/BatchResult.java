@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Результат обработки одного элемента пакетного запроса.
+ * index - позиция элемента в теле запроса, id - id созданной сущности, error - причина отказа.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    private int index;
+    private Long id;
+    private String error;
+
+    public static BatchResult success(int index, Long id) {
+        return new BatchResult(index, id, null);
+    }
+
+    public static BatchResult failure(int index, String error) {
+        return new BatchResult(index, null, error);
+    }
+
+    @JsonIgnore
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Событие ленты активности. userId - кто совершил действие,
+ * entityId - id фильма для лайков и id друга для дружбы, timestamp - время в миллисекундах.
+ */
+@Data
+@AllArgsConstructor
+public class Event {
+    private long eventId;
+    private long timestamp;
+    private long userId;
+    private EventType eventType;
+    private EventOperation operation;
+    private long entityId;
+}
@@ -4,20 +4,25 @@ import jakarta.validation.constraints.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Film.
  */
 
+// Аннотации ограничений при запросах не проверяются: создание и обновление проверяет FilmValidator.
+// Они остаются описанием правил, с которым FilmValidatorTest сверяет валидатор.
 @Data
 @EqualsAndHashCode(of = {"idFilm"})
 public class Film {
     private Long idFilm;
     @NotBlank(message = "Название не может быть пустым")
+    @Size(max = 255, message = "Название не должно превышать 255 символов")
     @NonNull
     private String nameFilm;
     @NonNull
@@ -28,10 +33,17 @@ public class Film {
     private LocalDate releaseDate;
     @Min(value = 1, message = "Длительность фильма должна быть положительной")
     private int duration;
-    private Set<Long> likes = new HashSet<>();
+    // В лог и toString попадает только количество лайков, а не весь набор
+    @ToString.Exclude
+    private Set<Long> likes = ConcurrentHashMap.newKeySet();
     private Set<Genre> genres = new HashSet<>();
     @NonNull
     private MotionPictureAssociation rating;
+
+    @ToString.Include(name = "likes")
+    private int likesCount() {
+        return likes.size();
+    }
 }
 
 
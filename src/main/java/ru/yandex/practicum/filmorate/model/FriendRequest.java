@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRequest {
+    @NotNull
+    private Long userId;
+    @NotNull
+    private Long friendId;
+}
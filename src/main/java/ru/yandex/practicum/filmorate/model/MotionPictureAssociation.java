@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
 public enum MotionPictureAssociation {
     G,
     PG,
@@ -7,6 +9,16 @@ public enum MotionPictureAssociation {
     R,
     NC_17;
 
+    // Рейтинг по названию: принимается как "PG-13", так и "PG_13", регистр не важен
+    public static MotionPictureAssociation from(String value) {
+        for (MotionPictureAssociation rating : values()) {
+            if (rating.toString().equalsIgnoreCase(value) || rating.name().equalsIgnoreCase(value)) {
+                return rating;
+            }
+        }
+        throw new ValidationException("Неизвестный рейтинг: " + value);
+    }
+
     @Override
     public String toString() {
         return switch (this) {
@@ -4,28 +4,42 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
+import lombok.ToString;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Аннотации ограничений при запросах не проверяются: создание и обновление проверяет UserValidator.
+// Они остаются описанием правил, с которым UserValidatorTest сверяет валидатор.
 @Data
 @EqualsAndHashCode(of = {"idUser"})
 public class User {
     private Long idUser;
     @Email(message = "Неверный формат электронной почты")
+    @Size(max = 255, message = "Email не должен превышать 255 символов")
     @NonNull
     private String email;
     @NonNull
     @NotBlank(message = "Логин должен быть указан")
     @Pattern(regexp = "^\\S+$", message = "Логин не может содержать пробелы")
+    @Size(max = 255, message = "Логин не должен превышать 255 символов")
     private String login;
+    @Size(max = 255, message = "Имя не должно превышать 255 символов")
     private String name;
     @NonNull
     @PastOrPresent
     private LocalDate birthday;
-    private Map<Long, FriendshipStatus> friendship = new HashMap<>();
+    // В лог и toString попадает только количество дружеских связей, а не вся карта
+    @ToString.Exclude
+    private Map<Long, FriendshipStatus> friendship = new ConcurrentHashMap<>();
+
+    @ToString.Include(name = "friends")
+    private int friendsCount() {
+        return friendship.size();
+    }
 }
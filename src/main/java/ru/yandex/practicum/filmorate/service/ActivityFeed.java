@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лента активности: у каждого пользователя кольцевой буфер из capacity последних его событий,
+ * более старые события вытесняются. Память на пользователя фиксирована: около 60 * capacity байт,
+ * буфер создаётся при первом событии пользователя.
+ * <p>
+ * Лента собирается при чтении: буферы самого пользователя и его друзей сливаются по времени
+ * от новых к старым. В куче слияния лежит по одному текущему событию из каждого буфера,
+ * поэтому чтение стоит O(k + limit * log k) для k буферов и не копирует их целиком.
+ * Чтение идёт без блокировок; если буфер успели переписать во время чтения, его просмотр просто заканчивается.
+ */
+@Component
+public class ActivityFeed {
+
+    private final int capacity;
+    private final Clock clock;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, EventRing> rings = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ActivityFeed(@Value("${filmorate.feed.capacity:100}") int capacity) {
+        this(capacity, Clock.systemUTC());
+    }
+
+    ActivityFeed(int capacity, Clock clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер буфера ленты должен быть положительным");
+        }
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    // Запись события в буфер пользователя userId
+    public void record(long userId, EventType eventType, EventOperation operation, long entityId) {
+        rings.computeIfAbsent(userId, id -> new EventRing(capacity))
+                .append(userId, eventType, operation, entityId);
+    }
+
+    // Не больше limit последних событий пользователя и его друзей, от новых к старым
+    public List<Event> feed(long userId, Collection<Long> friendIds, int limit) {
+        List<Cursor> cursors = new ArrayList<>(friendIds.size() + 1);
+        addCursor(cursors, userId);
+        for (Long friendId : friendIds) {
+            addCursor(cursors, friendId);
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(cursors);
+        List<Event> result = new ArrayList<>(Math.min(limit, cursors.size() * capacity));
+        while (result.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            result.add(cursor.head);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private void addCursor(List<Cursor> cursors, long userId) {
+        EventRing ring = rings.get(userId);
+        if (ring != null) {
+            Cursor cursor = ring.cursor();
+            if (cursor != null) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    private final class EventRing {
+        private final AtomicReferenceArray<Event> slots;
+        // ReentrantLock, а не synchronized: виртуальный поток, ждущий записи, не занимает поток-носитель
+        private final ReentrantLock lock = new ReentrantLock();
+        // Сколько событий записано за всё время; запись в slots видна читателю после чтения written
+        private volatile long written;
+        private long lastTimestamp;
+
+        private EventRing(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        // Id и время назначаются под блокировкой буфера, поэтому внутри буфера оба только растут
+        private void append(long userId, EventType eventType, EventOperation operation, long entityId) {
+            lock.lock();
+            try {
+                lastTimestamp = Math.max(lastTimestamp, clock.millis());
+                Event event = new Event(sequence.incrementAndGet(), lastTimestamp, userId, eventType, operation,
+                        entityId);
+                slots.set(slot(written), event);
+                written = written + 1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Cursor cursor() {
+            long position = written - 1;
+            if (position < 0) {
+                return null;
+            }
+            return new Cursor(this, position, Math.max(0, written - capacity), slots.get(slot(position)));
+        }
+
+        private int slot(long position) {
+            return (int) (position % capacity);
+        }
+    }
+
+    // Просмотр одного буфера от новых событий к старым
+    private static final class Cursor implements Comparable<Cursor> {
+        private final EventRing ring;
+        private final long oldest;
+        private long position;
+        private Event head;
+
+        private Cursor(EventRing ring, long position, long oldest, Event head) {
+            this.ring = ring;
+            this.position = position;
+            this.oldest = oldest;
+            this.head = head;
+        }
+
+        // Переход к предыдущему событию; false, если событий больше нет или они уже перезаписаны
+        private boolean advance() {
+            position--;
+            if (position < oldest) {
+                return false;
+            }
+            Event previous = ring.slots.get(ring.slot(position));
+            if (previous.getEventId() >= head.getEventId()) {
+                return false;
+            }
+            head = previous;
+            return true;
+        }
+
+        // Более новое событие - раньше
+        @Override
+        public int compareTo(Cursor other) {
+            if (head.getTimestamp() != other.head.getTimestamp()) {
+                return Long.compare(other.head.getTimestamp(), head.getTimestamp());
+            }
+            return Long.compare(other.head.getEventId(), head.getEventId());
+        }
+    }
+}
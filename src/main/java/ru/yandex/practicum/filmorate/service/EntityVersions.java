@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Версии данных для кэша готовых ответов: версия меняется после каждого изменения сущности.
+ * Версии хранятся не по id, а в фиксированном наборе ячеек: изменение одной сущности может сменить
+ * версию другой, попавшей в ту же ячейку, - это лишь лишний промах кэша, зато память не растёт с числом сущностей.
+ * Все версии берутся из одного возрастающего счётчика, поэтому старое значение ячейки никогда не повторяется.
+ * Версия каталога, от которой зависят списки популярных фильмов, меняется при лайке только тогда,
+ * когда фильм мог войти в уже построенный список или уже был в нём.
+ */
+@Component
+public class EntityVersions {
+
+    private static final int STRIPES = 1 << 16;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray films = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray friendLists = new AtomicLongArray(STRIPES);
+    // Меняется при создании и изменении фильмов и при лайках, которые могут изменить списки популярных фильмов
+    private final AtomicLong filmCatalog = new AtomicLong();
+    // Наименьшее число лайков в списках популярных, построенных после последней смены версии каталога;
+    // Long.MAX_VALUE - таких списков нет
+    private final AtomicLong popularThreshold = new AtomicLong(Long.MAX_VALUE);
+    // Число строящихся сейчас списков популярных: пока список строится, его порог ещё неизвестен
+    private final AtomicInteger popularBuilds = new AtomicInteger();
+
+    // Версия фильма с указанным id
+    public long film(long id) {
+        return films.get(stripe(id));
+    }
+
+    // Версия всех фильмов вместе
+    public long filmCatalog() {
+        return filmCatalog.get();
+    }
+
+    // Версия списка друзей пользователя с указанным id
+    public long friendList(long userId) {
+        return friendLists.get(stripe(userId));
+    }
+
+    // Вызывается после создания или изменения фильма
+    public void filmChanged(long id) {
+        films.accumulateAndGet(stripe(id), sequence.incrementAndGet(), Math::max);
+        catalogChanged();
+    }
+
+    /**
+     * Вызывается после добавления или снятия лайка. likes - большее из чисел лайков фильма до и после изменения,
+     * оно запрашивается, только если есть построенные списки популярных.
+     * Фильм, у которого лайков меньше, чем у последнего фильма каждого такого списка, не мог в них попасть:
+     * ни его место, ни его лайки в этих списках не показаны, поэтому версия каталога не меняется.
+     */
+    public void filmLikesChanged(long id, LongSupplier likes) {
+        films.accumulateAndGet(stripe(id), sequence.incrementAndGet(), Math::max);
+        if (popularBuilds.get() > 0) {
+            catalogChanged();
+            return;
+        }
+        long threshold = popularThreshold.get();
+        if (threshold != Long.MAX_VALUE && likes.getAsLong() >= threshold) {
+            catalogChanged();
+        }
+    }
+
+    /**
+     * Построение списка не более чем из count популярных фильмов для кэша ответов.
+     * Запоминается число лайков последнего фильма списка (0, если список неполный и в него вошли все подходящие
+     * фильмы): лайки фильмов, у которых их меньше, этот список не меняют. Лайки, пришедшие во время построения,
+     * меняют версию каталога без проверки порога.
+     */
+    public List<Film> buildPopular(int count, Supplier<List<Film>> loader) {
+        popularBuilds.incrementAndGet();
+        try {
+            List<Film> popular = loader.get();
+            long lastLikes = popular.size() < count ? 0 : popular.get(popular.size() - 1).getLikes().size();
+            popularThreshold.accumulateAndGet(lastLikes, Math::min);
+            return popular;
+        } finally {
+            popularBuilds.decrementAndGet();
+        }
+    }
+
+    // Вызывается после изменения дружеских связей пользователя или профиля друга, показанного в его списке
+    public void friendListChanged(long userId) {
+        friendLists.accumulateAndGet(stripe(userId), sequence.incrementAndGet(), Math::max);
+    }
+
+    // Порог сбрасывается до смены версии: списки, построенные после неё, запишут свой порог заново
+    private void catalogChanged() {
+        popularThreshold.set(Long.MAX_VALUE);
+        filmCatalog.incrementAndGet();
+    }
+
+    private static int stripe(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 48) & (STRIPES - 1);
+    }
+}
@@ -2,16 +2,27 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
-import java.time.LocalDate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,13 +31,26 @@ public class FilmService {
 
     private final FilmStorage filmStorage;
     private final UserService userService;
+    private final FilmValidator validator;
+    private final EntityVersions versions;
+    private final TrendingCounters trending;
+    private final ActivityFeed feed;
+    // Сколько самых похожих пользователей учитывается при подборе рекомендаций
+    private final int recommendationNeighbours;
 
-    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 25);
+    private static final int MAX_BATCH_SIZE = 10_000;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserService userService) {
+    public FilmService(FilmStorage filmStorage, UserService userService, FilmValidator validator,
+                       EntityVersions versions, TrendingCounters trending, ActivityFeed feed,
+                       @Value("${filmorate.recommendations.neighbours:20}") int recommendationNeighbours) {
         this.filmStorage = filmStorage;
         this.userService = userService;
+        this.validator = validator;
+        this.versions = versions;
+        this.trending = trending;
+        this.feed = feed;
+        this.recommendationNeighbours = recommendationNeighbours;
     }
 
     public void addLikes(Long id, Long userId) {
@@ -36,7 +60,13 @@ public class FilmService {
         if (userService.getUser(userId).isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + userId + " в списках зарегестрированных не найден");
         }
-        getFilm(id).get().getLikes().add(userId);
+        // Повторный лайк того же пользователя в подборку и ленту не попадает: хранилище решает это под блокировкой
+        boolean newLike = filmStorage.addLike(id, userId);
+        if (newLike) {
+            versions.filmLikesChanged(id, () -> likesCount(id));
+            trending.liked(id);
+            feed.record(userId, EventType.LIKE, EventOperation.ADD, id);
+        }
     }
 
     public void delLikes(Long id, Long userId) {
@@ -46,62 +76,168 @@ public class FilmService {
         if (userService.getUser(userId).isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + userId + " в списках зарегестрированных не найден");
         }
-        getFilm(id).get().getLikes().remove(userId);
+        boolean liked = filmStorage.removeLike(id, userId);
+        if (liked) {
+            // До снятия лайков было на один больше: по этому числу фильм мог стоять в списке популярных
+            versions.filmLikesChanged(id, () -> likesCount(id) + 1);
+            feed.record(userId, EventType.LIKE, EventOperation.REMOVE, id);
+        }
+    }
+
+    // Пакетное добавление лайков: существование фильмов и пользователей проверяется один раз на пакет
+    public List<BatchResult> addLikes(List<FilmLike> likes) {
+        log.info("Пакетное добавление {} лайков", likes.size());
+        checkBatchSize(likes.size());
+        Set<Long> filmIds = filmStorage.findExistingIds(likes.stream()
+                .filter(Objects::nonNull)
+                .map(FilmLike::getFilmId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<Long> userIds = userService.findExistingIds(likes.stream()
+                .filter(Objects::nonNull)
+                .map(FilmLike::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        List<BatchResult> results = new ArrayList<>(likes.size());
+        List<FilmLike> accepted = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+                results.add(BatchResult.failure(i, "Должны быть указаны id фильма и id пользователя"));
+            } else if (!filmIds.contains(like.getFilmId())) {
+                results.add(BatchResult.failure(i, "Фильм с id = " + like.getFilmId() + " в коллекции не найден"));
+            } else if (!userIds.contains(like.getUserId())) {
+                results.add(BatchResult.failure(i, "Пользователь с id = " + like.getUserId()
+                        + " в списках зарегестрированных не найден"));
+            } else {
+                accepted.add(like);
+                results.add(BatchResult.success(i, null));
+            }
+        }
+        List<FilmLike> added = filmStorage.addLikes(accepted);
+        added.stream().map(FilmLike::getFilmId).distinct()
+                .forEach(filmId -> versions.filmLikesChanged(filmId, () -> likesCount(filmId)));
+        // В подборку и ленту попадают только лайки, которых раньше не было
+        added.forEach(like -> {
+            trending.liked(like.getFilmId());
+            feed.record(like.getUserId(), EventType.LIKE, EventOperation.ADD, like.getFilmId());
+        });
+        return results;
     }
 
     public List<Film> topFilms(int quantity) {
-        return filmStorage.findAll().stream()
-                .sorted((f1, f2) -> Integer.compare(f2.getLikes().size(), f1.getLikes().size()))
-                .limit(quantity)
-                .collect(Collectors.toList());
+        return filmStorage.getPopular(quantity);
+    }
+
+    // Популярные фильмы с фильтрами по жанру, рейтингу и году выпуска, null - без фильтра
+    public List<Film> topFilms(int quantity, Long genreId, String rating, Integer year) {
+        return filmStorage.getPopular(quantity, genreId,
+                rating == null ? null : MotionPictureAssociation.from(rating), year);
+    }
+
+    /**
+     * Фильмы, набравшие больше всего лайков за последнее время window (например 24h или 7d).
+     * Снятые лайки из счётчиков не вычитаются: подборка показывает активность, а не текущий итог.
+     */
+    public List<Film> trending(String window, int count) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный период: " + window);
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(trending.maxWindow()) > 0) {
+            throw new ValidationException("Период должен быть больше нуля и не больше " + trending.maxWindow());
+        }
+        List<Film> films = new ArrayList<>(count);
+        for (long id : trending.top(duration, count)) {
+            getFilm(id).ifPresent(films::add);
+        }
+        return films;
+    }
+
+    // Поиск фильмов по названию и описанию
+    public List<Film> search(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        return filmStorage.search(query, count);
+    }
+
+    // Рекомендации фильмов по лайкам пользователей с похожими вкусами
+    public List<Film> findRecommendations(Long userId, int count) {
+        if (userService.getUser(userId).isEmpty()) {
+            throw new NotFoundException("Пользователь с id = " + userId + " в списках зарегестрированных не найден");
+        }
+        return filmStorage.findRecommendations(userId, recommendationNeighbours, count);
     }
 
     public Film create(Film film) {
         log.info("Добавляем новый фильм {} в коллекцию.", film);
-        log.trace("Присваиваем фильму уникальный id");
-        film.setIdFilm(getNextId());
-        log.trace("Проверка даты релиза фильма на соблюдение требования ТЗ");
-        checkReleaseDate(film.getReleaseDate());
-        return filmStorage.create(film);
+        validator.validate(film);
+        Film created = filmStorage.create(film);
+        versions.filmChanged(created.getIdFilm());
+        return created;
+    }
+
+    // Пакетное добавление фильмов: некорректные элементы отклоняются, остальные сохраняются одним проходом
+    public List<BatchResult> createAll(List<Film> films) {
+        log.info("Пакетное добавление {} фильмов в коллекцию", films.size());
+        checkBatchSize(films.size());
+        BatchResult[] results = new BatchResult[films.size()];
+        List<Film> accepted = new ArrayList<>(films.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            String error = validator.findError(films.get(i));
+            if (error != null) {
+                results[i] = BatchResult.failure(i, error);
+            } else {
+                accepted.add(films.get(i));
+                acceptedIndexes.add(i);
+            }
+        }
+        List<Film> created = filmStorage.createAll(accepted);
+        created.forEach(film -> versions.filmChanged(film.getIdFilm()));
+        for (int i = 0; i < created.size(); i++) {
+            int index = acceptedIndexes.get(i);
+            results[index] = BatchResult.success(index, created.get(i).getIdFilm());
+        }
+        return Arrays.asList(results);
     }
 
     public Collection<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    // Постраничный вывод по id: следующая страница запрашивается с after = id последнего элемента
+    public List<Film> findPage(long after, int limit) {
+        return filmStorage.findPage(after, limit);
+    }
+
     public Film update(Film newFilm) {
         log.trace("Обновление данных о фильме");
         if (newFilm.getIdFilm() == null) {
             log.warn("Не указан id фильма");
             throw new ValidationException("Id должен быть указан");
         }
-        checkReleaseDate(newFilm.getReleaseDate());
-        return filmStorage.update(newFilm);
+        validator.validate(newFilm);
+        Film updated = filmStorage.update(newFilm);
+        versions.filmChanged(updated.getIdFilm());
+        return updated;
     }
 
     public Optional<Film> getFilm(Long id) {
-        if (filmStorage.findAll() == null) {
-            return Optional.empty();
-        }
         return filmStorage.getFilm(id);
     }
 
-    private void checkReleaseDate(LocalDate localDate) {
-        log.debug("Проверяем дату выхода фильма");
-        if (!localDate.isAfter(FIRST_FILM_DATE)) {
-            log.warn("Дата выхода: {} фильма не должна быть ранее 25.12.1895 года", localDate);
-            throw new ValidationException("Дата выпуска фильма должна быть позже 25.12.1895г.");
-        }
+    private long likesCount(long id) {
+        return filmStorage.getFilm(id).map(film -> film.getLikes().size()).orElse(0);
     }
 
-    private long getNextId() {
-        log.debug("Генерируем id для фильма");
-        long currentMaxId = filmStorage.findAll()
-                .stream()
-                .map(Film::getIdFilm)
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    private void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            log.warn("Размер пакета {} превышает допустимый {}", size, MAX_BATCH_SIZE);
+            throw new ValidationException("В пакете не должно быть больше " + MAX_BATCH_SIZE + " элементов");
+        }
     }
 }
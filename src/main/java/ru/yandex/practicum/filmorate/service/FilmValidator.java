@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+
+/**
+ * Проверка фильма за один проход по полям без рефлексии Bean Validation.
+ * Повторяет ограничения аннотаций Film и правило о дате первого фильма.
+ * Для корректного фильма ничего не создаётся; ошибки собираются в одну строку через "; ".
+ */
+@Slf4j
+@Component
+public class FilmValidator {
+
+    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 25);
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+    // Длины строк не больше размеров столбцов в schema.sql: иначе под профилем jdbc запрос падал бы в базе
+    private static final int MAX_NAME_LENGTH = 255;
+
+    // Описание ошибок фильма или null, если фильм корректен
+    public String findError(Film film) {
+        if (film == null) {
+            return "Фильм должен быть указан";
+        }
+        String errors = null;
+        String name = film.getNameFilm();
+        if (name == null || name.isBlank()) {
+            errors = append(errors, "Название не может быть пустым");
+        } else if (name.length() > MAX_NAME_LENGTH) {
+            errors = append(errors, "Название не должно превышать 255 символов");
+        }
+        String description = film.getDescription();
+        if (description == null) {
+            errors = append(errors, "Описание должно быть указано");
+        } else if (description.length() > MAX_DESCRIPTION_LENGTH) {
+            errors = append(errors, "Описание не должно превышать 200 символов");
+        }
+        LocalDate releaseDate = film.getReleaseDate();
+        if (releaseDate == null) {
+            errors = append(errors, "Дата выпуска должна быть указана");
+        } else if (!releaseDate.isAfter(FIRST_FILM_DATE)) {
+            errors = append(errors, "Дата выпуска фильма должна быть позже 25.12.1895г.");
+        } else if (releaseDate.isAfter(LocalDate.now())) {
+            errors = append(errors, "Дата выпуска не может быть в будущем");
+        }
+        if (film.getDuration() < 1) {
+            errors = append(errors, "Длительность фильма должна быть положительной");
+        }
+        if (film.getRating() == null) {
+            errors = append(errors, "Рейтинг должен быть указан");
+        }
+        return errors;
+    }
+
+    public void validate(Film film) {
+        String error = findError(film);
+        if (error != null) {
+            log.warn("Фильм не прошел проверку: {}", error);
+            throw new ValidationException(error);
+        }
+    }
+
+    private static String append(String errors, String message) {
+        return errors == null ? message : errors + "; " + message;
+    }
+}
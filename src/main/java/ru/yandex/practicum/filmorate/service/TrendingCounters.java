@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Счётчики лайков в скользящем окне для подборки набирающих популярность фильмов.
+ * Время разбито на интервалы длиной bucket, для каждого интервала хранится число лайков по фильмам.
+ * Интервалы лежат в кольце на maxWindow: устаревший интервал заменяется новым целиком,
+ * поэтому сдвиг окна стоит O(1) на интервал и не зависит от числа лайков.
+ * Окно запроса округляется вверх до целого числа интервалов, включая текущий неполный.
+ * <p>
+ * Память: одна запись (~80 байт) на каждую пару фильм-интервал, в которой был лайк,
+ * то есть не больше min(число лайков за maxWindow, число фильмов × число интервалов).
+ * Счётчики хранятся только в памяти и после перезапуска начинаются с нуля.
+ */
+@Component
+public class TrendingCounters {
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> ring;
+
+    @Autowired
+    public TrendingCounters(@Value("${filmorate.trending.bucket:1h}") Duration bucket,
+                            @Value("${filmorate.trending.max-window:7d}") Duration maxWindow) {
+        this(bucket, maxWindow, Clock.systemUTC());
+    }
+
+    TrendingCounters(Duration bucket, Duration maxWindow, Clock clock) {
+        if (bucket.isNegative() || bucket.isZero() || maxWindow.compareTo(bucket) < 0) {
+            throw new IllegalArgumentException("Интервал должен быть положительным и не больше максимального окна");
+        }
+        this.clock = clock;
+        this.bucketMillis = bucket.toMillis();
+        // Лишний интервал под текущий неполный
+        this.ring = new AtomicReferenceArray<>(Math.toIntExact(Math.ceilDiv(maxWindow.toMillis(), bucketMillis)) + 1);
+    }
+
+    // Максимальное окно, по которому можно посчитать лайки
+    public Duration maxWindow() {
+        return Duration.ofMillis(bucketMillis * (ring.length() - 1));
+    }
+
+    // Учет лайка фильму в текущем интервале
+    public void liked(long filmId) {
+        current().counts.merge(filmId, 1, Integer::sum);
+    }
+
+    /**
+     * Id фильмов по убыванию числа лайков за окно, при равенстве - по возрастанию id.
+     * Фильмы без лайков за окно не попадают в результат.
+     */
+    public long[] top(Duration window, int count) {
+        long now = index(clock.millis());
+        long buckets = Math.min(ring.length(), Math.ceilDiv(window.toMillis(), bucketMillis));
+        Map<Long, Integer> totals = new HashMap<>();
+        for (long index = now - buckets + 1; index <= now; index++) {
+            Bucket bucket = ring.get(slot(index));
+            if (bucket != null && bucket.index == index) {
+                bucket.counts.forEach((filmId, likes) -> totals.merge(filmId, likes, Integer::sum));
+            }
+        }
+        // Минимальная куча: в вершине худший из отобранных
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(count + 1, (a, b) ->
+                !a.getValue().equals(b.getValue())
+                        ? Integer.compare(a.getValue(), b.getValue())
+                        : Long.compare(b.getKey(), a.getKey()));
+        for (Map.Entry<Long, Integer> entry : totals.entrySet()) {
+            top.add(entry);
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        long[] result = new long[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().getKey();
+        }
+        return result;
+    }
+
+    // Интервал текущего времени; устаревший интервал в ячейке кольца заменяется новым
+    private Bucket current() {
+        long index = index(clock.millis());
+        int slot = slot(index);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.index >= index) {
+                return bucket;
+            }
+            Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long index(long millis) {
+        return Math.floorDiv(millis, bucketMillis);
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) ring.length());
+    }
+
+    private static final class Bucket {
+        private final long index;
+        private final Map<Long, Integer> counts = new ConcurrentHashMap<>();
+
+        private Bucket(long index) {
+            this.index = index;
+        }
+    }
+}
@@ -5,22 +5,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
-import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.EventOperation;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class UserService {
 
     private final UserStorage userStorage;
+    private final UserValidator validator;
+    private final EntityVersions versions;
+    private final ActivityFeed feed;
+
+    private static final int MAX_BATCH_SIZE = 10_000;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, UserValidator validator, EntityVersions versions, ActivityFeed feed) {
         this.userStorage = userStorage;
+        this.validator = validator;
+        this.versions = versions;
+        this.feed = feed;
     }
 
     // Запрос на добавление друга
@@ -34,10 +47,52 @@ public class UserService {
         if (id.equals(friendId)) {
             throw new ValidationException("Нельзя добавить самого себя в друзья");
         }
-        User user1 = getUser(id).get();
-        User user2 = getUser(friendId).get();
-        user1.getFriendship().put(user2.getIdUser(), FriendshipStatus.PENDING);
-        user2.getFriendship().put(user1.getIdUser(), FriendshipStatus.PENDING);
+        boolean changed = userStorage.addFriend(id, friendId);
+        // Повторный запрос, ничего не изменивший в хранилище, версии списков не меняет и в ленту не попадает
+        if (changed) {
+            friendshipChanged(id, friendId);
+            feed.record(id, EventType.FRIEND, EventOperation.ADD, friendId);
+        }
+    }
+
+    // Пакетная отправка запросов в друзья: существование пользователей проверяется один раз на пакет
+    public List<BatchResult> addFriends(List<FriendRequest> requests) {
+        log.info("Пакетная отправка {} запросов в друзья", requests.size());
+        checkBatchSize(requests.size());
+        Set<Long> userIds = findExistingIds(requests.stream()
+                .filter(Objects::nonNull)
+                .flatMap(request -> Stream.of(request.getUserId(), request.getFriendId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        List<BatchResult> results = new ArrayList<>(requests.size());
+        List<FriendRequest> accepted = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            FriendRequest request = requests.get(i);
+            if (request == null || request.getUserId() == null || request.getFriendId() == null) {
+                results.add(BatchResult.failure(i, "Должны быть указаны id пользователя и id друга"));
+            } else if (!userIds.contains(request.getUserId())) {
+                results.add(BatchResult.failure(i, "Пользователь с id = " + request.getUserId()
+                        + " в списках зарегестрированных не найден"));
+            } else if (!userIds.contains(request.getFriendId())) {
+                results.add(BatchResult.failure(i, "Друг с id = " + request.getFriendId()
+                        + " в списках зарегестрированных не найден"));
+            } else if (request.getUserId().equals(request.getFriendId())) {
+                results.add(BatchResult.failure(i, "Нельзя добавить самого себя в друзья"));
+            } else {
+                accepted.add(request);
+                results.add(BatchResult.success(i, null));
+            }
+        }
+        List<FriendRequest> changed = userStorage.addFriends(accepted);
+        Set<Long> changedLists = new HashSet<>();
+        changed.stream()
+                .flatMap(request -> Stream.of(request.getUserId(), request.getFriendId()))
+                .distinct()
+                .forEach(userId -> collectFriendshipLists(userId, changedLists));
+        changedLists.forEach(versions::friendListChanged);
+        changed.forEach(request -> feed.record(request.getUserId(), EventType.FRIEND, EventOperation.ADD,
+                request.getFriendId()));
+        return results;
     }
 
     // Вывод всех друзей пользователя
@@ -45,14 +100,7 @@ public class UserService {
         if (getUser(id).isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + id + " в списках зарегестрированных не найден");
         }
-        return getUser(id).get().getFriendship().entrySet().stream()
-                .filter(entry -> entry.getValue() == FriendshipStatus.CONFIRMED)
-                .map(Map.Entry::getKey)
-                .map(userStorage::getUser)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList()
-                );
+        return userStorage.findFriends(id);
     }
 
     // Метод для удаления друга
@@ -66,10 +114,11 @@ public class UserService {
         if (id.equals(friendId)) {
             throw new NotFoundException("Нельзя удалить самого себя из друзей");
         }
-        User user1 = getUser(id).get();
-        User user2 = getUser(friendId).get();
-        user1.getFriendship().remove(user2.getIdUser());
-        user2.getFriendship().remove(user1.getIdUser());
+        boolean changed = userStorage.removeFriend(id, friendId);
+        if (changed) {
+            friendshipChanged(id, friendId);
+            feed.record(id, EventType.FRIEND, EventOperation.REMOVE, friendId);
+        }
     }
 
     // Поиск общих друзей
@@ -80,15 +129,15 @@ public class UserService {
         if (getUser(otherId).isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + otherId + " в списках зарегестрированных не найден");
         }
-        List<User> friends1 = findAllFriendsUser(id);
-
-        Set<Long> friendsIds1 = friends1.stream()
-                .map(User::getIdUser)
-                .collect(Collectors.toSet());
+        return userStorage.findCommonFriends(id, otherId);
+    }
 
-        return findAllFriendsUser(otherId).stream()
-                .filter(friend -> friendsIds1.contains(friend.getIdUser()))
-                .collect(Collectors.toList());
+    // Возможные друзья пользователя по числу общих друзей
+    public List<User> findFriendSuggestions(Long id, int count) {
+        if (getUser(id).isEmpty()) {
+            throw new NotFoundException("Пользователь с id = " + id + " в списках зарегестрированных не найден");
+        }
+        return userStorage.findFriendSuggestions(id, count);
     }
 
     // Подтверждение дружбы
@@ -99,70 +148,116 @@ public class UserService {
         if (getUser(idFriends).isEmpty()) {
             throw new NotFoundException("Пользователь с id = " + idFriends + " в списках зарегестрированных не найден");
         }
-        if (getUser(id).get().getFriendship().containsKey(idFriends) &&
-        getUser(idFriends).get().getFriendship().containsKey(id)) {
-            getUser(id).get().getFriendship().put(idFriends, FriendshipStatus.CONFIRMED);
-            getUser(idFriends).get().getFriendship().put(id, FriendshipStatus.CONFIRMED);
+        boolean changed = userStorage.confirmFriendship(id, idFriends);
+        if (changed) {
+            friendshipChanged(id, idFriends);
+            feed.record(id, EventType.FRIEND, EventOperation.UPDATE, idFriends);
         }
     }
 
+    // Лента событий пользователя и его друзей с подтверждённой дружбой, от новых к старым
+    public List<Event> findFeed(Long id, int limit) {
+        if (getUser(id).isEmpty()) {
+            throw new NotFoundException("Пользователь с id = " + id + " в списках зарегестрированных не найден");
+        }
+        long[] friendIds = userStorage.getConfirmedFriendIds(id);
+        return feed.feed(id, Arrays.stream(friendIds).boxed().toList(), limit);
+    }
+
     public Collection<User> findAll() {
         return userStorage.findAll();
     }
 
+    // Постраничный вывод по id: следующая страница запрашивается с after = id последнего элемента
+    public List<User> findPage(long after, int limit) {
+        return userStorage.findPage(after, limit);
+    }
+
     public User create(User user) {
         log.info("Добавляем нового пользователя: {} в коллекцию.", user);
-        isContainEmail(user);
+        validator.validate(user);
         checkName(user);
-        log.trace("Присваиваем пользователю уникальный id");
-        user.setIdUser(getNextId());
         return userStorage.create(user);
     }
 
-    public Optional<User> getUser(Long id) {
-        if (userStorage.findAll() == null) {
-            return Optional.empty();
+    // Пакетное добавление пользователей: некорректные элементы отклоняются, остальные сохраняются одним проходом
+    public List<BatchResult> createAll(List<User> users) {
+        log.info("Пакетное добавление {} пользователей в коллекцию", users.size());
+        checkBatchSize(users.size());
+        BatchResult[] results = new BatchResult[users.size()];
+        List<User> accepted = new ArrayList<>(users.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            String error = validator.findError(users.get(i));
+            if (error != null) {
+                results[i] = BatchResult.failure(i, error);
+            } else {
+                checkName(users.get(i));
+                accepted.add(users.get(i));
+                acceptedIndexes.add(i);
+            }
+        }
+        for (BatchResult stored : userStorage.createAll(accepted)) {
+            int index = acceptedIndexes.get(stored.getIndex());
+            results[index] = new BatchResult(index, stored.getId(), stored.getError());
         }
+        return Arrays.asList(results);
+    }
+
+    // Id из переданных, под которыми есть зарегистрированные пользователи
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return userStorage.findExistingIds(ids);
+    }
+
+    public Optional<User> getUser(Long id) {
         return userStorage.getUser(id);
     }
 
     public User update(User newUser) {
-        isContainEmail(newUser);
-        checkName(newUser);
         log.trace("Обновление данных о пользователе");
         if (newUser.getIdUser() == null) {
             log.warn("Поле id должно быть заполненно");
             throw new ValidationException("Id должен быть указан");
         }
-        return userStorage.update(newUser);
-    }
-
-    private long getNextId() {
-        log.debug("Генерируем id для пользователей");
-        long currentMaxId = userStorage.findAll()
-                .stream()
-                .map(User::getIdUser)
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
-    }
-
-    private void isContainEmail(User user) {
-        log.trace("Проверка email {} на принадлежность другому пользователю", user.getEmail());
-        boolean isContain = false;
-        if (user.getIdUser() != null && (user.getIdUser() > 0 && getUser(user.getIdUser()).isPresent())) {
-            User oldUser = getUser(user.getIdUser()).get();
-            isContain = userStorage.findAll().stream()
-                    .filter(u -> !u.equals(oldUser))
-                    .anyMatch(u -> u.getEmail().equals(user.getEmail()));
-        } else {
-            isContain = userStorage.findAll().stream()
-                    .anyMatch(u -> u.getEmail().equals(user.getEmail()));
-        }
-        if (isContain) {
-            log.warn("Email {} используется другим пользователем", user.getEmail());
-            throw new ValidationException("Этот имейл уже используется");
+        validator.validate(newUser);
+        checkName(newUser);
+        long[] friendsBefore = userStorage.getConfirmedFriendIds(newUser.getIdUser());
+        User updated = userStorage.update(newUser);
+        long[] friendsAfter = userStorage.getConfirmedFriendIds(updated.getIdUser());
+        // Профиль показан в списках подтверждённых друзей; свой список меняется, только если изменился состав друзей
+        Set<Long> changedLists = new HashSet<>();
+        Arrays.stream(friendsBefore).forEach(changedLists::add);
+        Arrays.stream(friendsAfter).forEach(changedLists::add);
+        if (!Arrays.equals(friendsBefore, friendsAfter)) {
+            changedLists.add(updated.getIdUser());
+        }
+        changedLists.forEach(versions::friendListChanged);
+        return updated;
+    }
+
+    private void friendshipChanged(Long id, Long friendId) {
+        Set<Long> changedLists = new HashSet<>();
+        collectFriendshipLists(id, changedLists);
+        collectFriendshipLists(friendId, changedLists);
+        changedLists.forEach(versions::friendListChanged);
+    }
+
+    /**
+     * Списки друзей, которые меняются вместе с дружескими связями пользователя: его собственный список
+     * и списки его подтверждённых друзей, где он показан вместе со своими связями.
+     * Список второго участника удалённой дружбы добавляется вызовом для этого участника.
+     */
+    private void collectFriendshipLists(Long id, Set<Long> lists) {
+        lists.add(id);
+        for (long friendId : userStorage.getConfirmedFriendIds(id)) {
+            lists.add(friendId);
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            log.warn("Размер пакета {} превышает допустимый {}", size, MAX_BATCH_SIZE);
+            throw new ValidationException("В пакете не должно быть больше " + MAX_BATCH_SIZE + " элементов");
         }
     }
 
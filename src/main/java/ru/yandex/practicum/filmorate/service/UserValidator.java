@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Проверка пользователя за один проход по полям без рефлексии Bean Validation и регулярных выражений.
+ * Повторяет ограничения аннотаций User; email разбирается по тем же правилам, что и @Email Hibernate Validator:
+ * фрагменты из допустимых символов через точку в локальной части и в домене или IPv4-адрес в скобках.
+ * Редкие формы, которые @Email тоже принимает, - локальная часть в кавычках и IPv6-адрес - здесь отклоняются.
+ */
+@Slf4j
+@Component
+public class UserValidator {
+
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_DOMAIN_LENGTH = 255;
+    // Длины строк не больше размеров столбцов в schema.sql: иначе под профилем jdbc запрос падал бы в базе
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final String ATOM_SYMBOLS = "!#$%&'*+/=?^_`{|}~-";
+
+    // Описание ошибок пользователя или null, если пользователь корректен
+    public String findError(User user) {
+        if (user == null) {
+            return "Пользователь должен быть указан";
+        }
+        String errors = null;
+        String email = user.getEmail();
+        if (email == null) {
+            errors = append(errors, "Email должен быть указан");
+        } else if (!isEmail(email)) {
+            errors = append(errors, "Неверный формат электронной почты");
+        } else if (email.length() > MAX_TEXT_LENGTH) {
+            errors = append(errors, "Email не должен превышать 255 символов");
+        }
+        String login = user.getLogin();
+        if (login == null || login.isBlank()) {
+            errors = append(errors, "Логин должен быть указан");
+        } else if (containsWhitespace(login)) {
+            errors = append(errors, "Логин не может содержать пробелы");
+        } else if (login.length() > MAX_TEXT_LENGTH) {
+            errors = append(errors, "Логин не должен превышать 255 символов");
+        }
+        if (user.getName() != null && user.getName().length() > MAX_TEXT_LENGTH) {
+            errors = append(errors, "Имя не должно превышать 255 символов");
+        }
+        LocalDate birthday = user.getBirthday();
+        if (birthday == null) {
+            errors = append(errors, "Дата рождения должна быть указана");
+        } else if (birthday.isAfter(LocalDate.now())) {
+            errors = append(errors, "Дата рождения не может быть в будущем");
+        }
+        return errors;
+    }
+
+    public void validate(User user) {
+        String error = findError(user);
+        if (error != null) {
+            log.warn("Пользователь не прошел проверку: {}", error);
+            throw new ValidationException(error);
+        }
+    }
+
+    private static String append(String errors, String message) {
+        return errors == null ? message : errors + "; " + message;
+    }
+
+    // Пустая строка, как и в @Email, считается корректной: обязательность проверяется отдельно
+    static boolean isEmail(String email) {
+        if (email.isEmpty()) {
+            return true;
+        }
+        int at = email.lastIndexOf('@');
+        if (at <= 0 || at > MAX_LOCAL_PART_LENGTH || at == email.length() - 1) {
+            return false;
+        }
+        return isLocalPart(email, at) && isDomain(email, at + 1);
+    }
+
+    // Точки разделяют непустые фрагменты: не в начале, не в конце и не подряд
+    private static boolean isLocalPart(String email, int end) {
+        boolean fragmentStart = true;
+        for (int i = 0; i < end; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (fragmentStart) {
+                    return false;
+                }
+                fragmentStart = true;
+            } else if (isAtomChar(c)) {
+                fragmentStart = false;
+            } else {
+                return false;
+            }
+        }
+        return !fragmentStart;
+    }
+
+    private static boolean isDomain(String email, int start) {
+        if (email.length() - start > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        if (email.charAt(start) == '[') {
+            return email.charAt(email.length() - 1) == ']' && isIpAddress(email, start + 1, email.length() - 1);
+        }
+        int labelStart = start;
+        for (int i = start; i <= email.length(); i++) {
+            if (i == email.length() || email.charAt(i) == '.') {
+                if (!isLabel(email, labelStart, i)) {
+                    return false;
+                }
+                labelStart = i + 1;
+            }
+        }
+        return true;
+    }
+
+    // Метка домена: те же символы, что и в локальной части, дефис не по краям
+    private static boolean isLabel(String email, int start, int end) {
+        if (end == start || email.charAt(start) == '-' || email.charAt(end - 1) == '-') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isAtomChar(email.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Четыре группы из 1-3 цифр через точку; значения групп, как и в @Email, не ограничиваются
+    private static boolean isIpAddress(String email, int start, int end) {
+        int groups = 0;
+        int digits = 0;
+        for (int i = start; i <= end; i++) {
+            char c = i == end ? '.' : email.charAt(i);
+            if (c == '.') {
+                if (digits == 0) {
+                    return false;
+                }
+                groups++;
+                digits = 0;
+            } else if (c < '0' || c > '9' || ++digits > 3) {
+                return false;
+            }
+        }
+        return groups == 4;
+    }
+
+    // Латинские буквы, цифры, символы вне ASCII, дефис и спецсимволы, допустимые в @Email
+    private static boolean isAtomChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c >= 0x80
+                || ATOM_SYMBOLS.indexOf(c) >= 0;
+    }
+
+    // Пробельные символы в смысле \s регулярных выражений
+    private static boolean containsWhitespace(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
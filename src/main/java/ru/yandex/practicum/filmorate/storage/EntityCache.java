@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongFunction;
+
+/**
+ * Кэш сущностей по id, загружающий промахи в вызывающем потоке.
+ * Синхронный Cache.get(key, loader) выполняет загрузку внутри блокировки ConcurrentHashMap,
+ * и запрос в БД из виртуального потока закрепляет его за потоком-носителем.
+ * Здесь под блокировкой в кэш кладется только незавершенный future, а запрос выполняет
+ * первый промахнувшийся поток; параллельные промахи по тому же id ждут его результата.
+ */
+public class EntityCache<V> {
+
+    private final AsyncCache<Long, V> cache;
+    private final Cache<Long, V> view;
+
+    public EntityCache(long maximumWeight, Weigher<Long, V> weigher) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(weigher)
+                .recordStats()
+                .buildAsync();
+        this.view = cache.synchronous();
+    }
+
+    /**
+     * Сущность из кэша или из loader при промахе. Значение null не кэшируется.
+     */
+    public V get(long id, LongFunction<V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.get(id, (key, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(loader.apply(id));
+            } catch (RuntimeException e) {
+                // Неудачная загрузка удаляется из кэша, ожидающие потоки получат ту же ошибку
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void put(long id, V value) {
+        view.put(id, value);
+    }
+
+    public void invalidate(long id) {
+        view.invalidate(id);
+    }
+
+    public void invalidateAll(Iterable<Long> ids) {
+        view.invalidateAll(ids);
+    }
+
+    // Статистика попаданий и промахов кэша
+    public CacheStats stats() {
+        return view.stats();
+    }
+
+    // Публикация размера кэша, попаданий, промахов и вытеснений в реестре метрик
+    public void bindTo(MeterRegistry registry, String name) {
+        CaffeineCacheMetrics.monitor(registry, view, name);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий генератор идентификаторов для хранилищ.
+ * Инициализируется один раз при старте текущим максимальным id и далее выдаёт id за O(1).
+ */
+public class IdSequence {
+
+    private final AtomicLong lastId;
+
+    public IdSequence() {
+        this(0);
+    }
+
+    public IdSequence(long lastId) {
+        this.lastId = new AtomicLong(lastId);
+    }
+
+    // Следующий свободный id
+    public long next() {
+        return lastId.incrementAndGet();
+    }
+
+    // Резервирование блока из count подряд идущих id, возвращает первый id блока
+    public long reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Размер блока id должен быть положительным");
+        }
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    // Сдвиг последовательности, если уже занят id больше выданных
+    public void advanceTo(long usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+
+    // Последний выданный id
+    public long current() {
+        return lastId.get();
+    }
+}
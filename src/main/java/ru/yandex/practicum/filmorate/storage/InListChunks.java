@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Разбиение длинных списков значений для запросов с IN: число параметров одного запроса ограничено,
+ * а список на тысячи значений СУБД разбирает и планирует заметно дольше нескольких коротких.
+ */
+public final class InListChunks {
+
+    // Наибольшее число значений в одном списке IN
+    public static final int LIMIT = 1000;
+
+    private InListChunks() {
+    }
+
+    // Вызов action для последовательных частей values длиной не больше LIMIT
+    public static <T> void forEach(Collection<T> values, Consumer<List<T>> action) {
+        List<T> list = values instanceof List<T> ordered ? ordered : new ArrayList<>(values);
+        for (int from = 0; from < list.size(); from += LIMIT) {
+            action.accept(list.subList(from, Math.min(from + LIMIT, list.size())));
+        }
+    }
+}
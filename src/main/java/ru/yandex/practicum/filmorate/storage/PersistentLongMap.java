@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемый словарь с неотрицательными ключами long - префиксное дерево по 5 бит ключа на уровень.
+ * Запись возвращает новую версию словаря, копируя только путь от корня до ключа (O(log32 N) узлов по 32 ссылки),
+ * остальные узлы общие со старой версией. Поэтому читатель, получивший версию, обходит её без блокировок,
+ * а изменения, сделанные после, в ней не видны. Значения обходятся по возрастанию ключа.
+ */
+public final class PersistentLongMap<V> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0, 0);
+
+    // Внутренние узлы хранят дочерние узлы, узлы нижнего уровня (shift = 0) - значения
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+
+    private PersistentLongMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[digit(key, level)];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (V) node[digit(key, 0)];
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // Новая версия словаря, в которой ключу key соответствует value
+    public PersistentLongMap<V> with(long key, V value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("Ключ должен быть неотрицательным, значение - не null");
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (!fits(key, newShift)) {
+            // Дерево растёт вверх: прежний корень становится первым потомком нового
+            Object[] grown = new Object[WIDTH];
+            grown[0] = newRoot;
+            newRoot = newRoot == null ? null : grown;
+            newShift += BITS;
+        }
+        int newSize = containsKey(key) ? size : size + 1;
+        return new PersistentLongMap<>(with(newRoot, newShift, key, value), newShift, newSize);
+    }
+
+    // Все значения по возрастанию ключа
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return valuesAfter(-1);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Значения с ключами больше after по возрастанию ключа
+    public Iterator<V> valuesAfter(long after) {
+        return new Iterator<>() {
+            private long next = after == Long.MAX_VALUE ? -1 : ceilingKey(Math.max(0, after + 1));
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public V next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                V value = get(next);
+                next = next == Long.MAX_VALUE ? -1 : ceilingKey(next + 1);
+                return value;
+            }
+        };
+    }
+
+    private static Object[] with(Object[] node, int level, long key, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int digit = digit(key, level);
+        copy[digit] = level == 0 ? value : with((Object[]) copy[digit], level - BITS, key, value);
+        return copy;
+    }
+
+    // Наименьший ключ не меньше key или -1
+    private long ceilingKey(long key) {
+        if (root == null || !fits(key, shift)) {
+            return -1;
+        }
+        return ceilingKey(root, shift, key);
+    }
+
+    private static long ceilingKey(Object[] node, int level, long key) {
+        long high = level + BITS >= Long.SIZE ? 0 : key & (-1L << (level + BITS));
+        for (int digit = digit(key, level); digit < WIDTH; digit++) {
+            if (node[digit] == null) {
+                continue;
+            }
+            // В первой ячейке ищем от самого key, в следующих - с начала поддерева
+            long from = digit == digit(key, level) ? key : high | ((long) digit << level);
+            if (level == 0) {
+                return from;
+            }
+            long found = ceilingKey((Object[]) node[digit], level - BITS, from);
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean fits(long key, int shift) {
+        return shift + BITS >= Long.SIZE - 1 || key >>> (shift + BITS) == 0;
+    }
+
+    private static int digit(long key, int level) {
+        return (int) (key >>> level) & MASK;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Набор блокировок, разделённых по id сущности.
+ * Операции над разными сущностями выполняются параллельно, над одной и той же - последовательно.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    public StripedLock(int minStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = stripes - 1;
+    }
+
+    // Захват блокировки сущности с указанным id
+    public void lock(long id) {
+        locks[index(id)].lock();
+    }
+
+    public void unlock(long id) {
+        locks[index(id)].unlock();
+    }
+
+    // Захват блокировок двух сущностей в едином порядке, чтобы исключить взаимную блокировку
+    public void lock(long first, long second) {
+        int i = index(first);
+        int j = index(second);
+        locks[Math.min(i, j)].lock();
+        if (i != j) {
+            locks[Math.max(i, j)].lock();
+        }
+    }
+
+    public void unlock(long first, long second) {
+        int i = index(first);
+        int j = index(second);
+        if (i != j) {
+            locks[Math.max(i, j)].unlock();
+        }
+        locks[Math.min(i, j)].unlock();
+    }
+
+    private int index(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Подбор возможных друзей: друзья друзей, ранжированные по числу общих друзей.
+ * У пользователей с большим числом связей просматривается ограниченная равномерная выборка,
+ * поэтому время ответа не зависит от размера графа.
+ */
+public final class FriendSuggestions {
+
+    // Сколько друзей пользователя просматривается не более
+    static final int MAX_SAMPLED_FRIENDS = 256;
+    // Сколько друзей каждого друга просматривается не более
+    static final int MAX_SAMPLED_EDGES = 256;
+
+    private FriendSuggestions() {
+    }
+
+    /**
+     * Id кандидатов по убыванию числа общих друзей, при равенстве - по возрастанию id.
+     *
+     * @param friendIds отсортированные id подтверждённых друзей пользователя
+     * @param friendsOf отсортированные id подтверждённых друзей по id пользователя
+     * @param excluded  id, которые не нужно предлагать (сам пользователь и уже существующие связи)
+     * @param count     сколько кандидатов вернуть
+     */
+    public static long[] rank(long[] friendIds, LongFunction<long[]> friendsOf, LongPredicate excluded, int count) {
+        long[] candidates = collectCandidates(friendIds, friendsOf, excluded);
+        Arrays.sort(candidates);
+        // Минимальная куча по (число общих друзей, -id): в вершине худший из отобранных
+        PriorityQueue<long[]> top = new PriorityQueue<>(count + 1, (a, b) -> a[1] != b[1]
+                ? Long.compare(a[1], b[1])
+                : Long.compare(b[0], a[0]));
+        int i = 0;
+        while (i < candidates.length) {
+            int start = i;
+            while (i < candidates.length && candidates[i] == candidates[start]) {
+                i++;
+            }
+            top.add(new long[]{candidates[start], i - start});
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        long[] result = new long[top.size()];
+        for (int j = result.length - 1; j >= 0; j--) {
+            result[j] = top.poll()[0];
+        }
+        return result;
+    }
+
+    // Все вхождения друзей друзей из выборки, каждое вхождение - один общий друг
+    private static long[] collectCandidates(long[] friendIds, LongFunction<long[]> friendsOf, LongPredicate excluded) {
+        long[] sampledFriends = sample(friendIds, MAX_SAMPLED_FRIENDS);
+        long[][] edges = new long[sampledFriends.length][];
+        int total = 0;
+        for (int i = 0; i < sampledFriends.length; i++) {
+            edges[i] = sample(friendsOf.apply(sampledFriends[i]), MAX_SAMPLED_EDGES);
+            total += edges[i].length;
+        }
+        long[] candidates = new long[total];
+        int size = 0;
+        for (long[] friendEdges : edges) {
+            for (long candidateId : friendEdges) {
+                if (!excluded.test(candidateId)) {
+                    candidates[size++] = candidateId;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    // Равномерная выборка с постоянным шагом: для одного и того же графа результат не меняется между запросами
+    private static long[] sample(long[] ids, int limit) {
+        if (ids.length <= limit) {
+            return ids;
+        }
+        long[] result = new long[limit];
+        for (int i = 0; i < limit; i++) {
+            result[i] = ids[(int) ((long) i * ids.length / limit)];
+        }
+        return result;
+    }
+}
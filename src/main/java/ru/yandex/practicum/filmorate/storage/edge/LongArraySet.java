@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Компактное множество id на отсортированных блоках примитивов long (SortedLongBlocks).
+ * Один элемент занимает около 8 байт вместо упакованного Long и узла HashMap.
+ * Изменения публикуют новую неизменяемую версию блоков, поэтому чтение не требует блокировок
+ * и всегда видит согласованное состояние. Вставка и удаление копируют один блок и таблицу блоков - O(√n),
+ * поиск - O(log n).
+ */
+public class LongArraySet extends AbstractSet<Long> {
+
+    // Поле вместо AtomicReference: на каждое множество на один объект меньше
+    private static final AtomicReferenceFieldUpdater<LongArraySet, SortedLongBlocks> VALUES =
+            AtomicReferenceFieldUpdater.newUpdater(LongArraySet.class, SortedLongBlocks.class, "values");
+
+    private volatile SortedLongBlocks values;
+
+    public LongArraySet() {
+        values = SortedLongBlocks.empty(0);
+    }
+
+    public LongArraySet(Collection<Long> source) {
+        long[] array = source.stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+        values = SortedLongBlocks.of(array, array.length, 0);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && values.containsKey(id);
+    }
+
+    @Override
+    public boolean add(Long id) {
+        while (true) {
+            SortedLongBlocks current = values;
+            SortedLongBlocks updated = current.with(id);
+            if (updated == current) {
+                return false;
+            }
+            if (VALUES.compareAndSet(this, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Long id)) {
+            return false;
+        }
+        while (true) {
+            SortedLongBlocks current = values;
+            SortedLongBlocks updated = current.without(id);
+            if (updated == current) {
+                return false;
+            }
+            if (VALUES.compareAndSet(this, current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        values = SortedLongBlocks.empty(0);
+    }
+
+    // Копия содержимого в виде отсортированного массива
+    public long[] toSortedArray() {
+        return values.toArray();
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        PrimitiveIterator.OfLong snapshot = values.iterator();
+        return new Iterator<>() {
+            private boolean hasLast;
+            private long last;
+
+            @Override
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            @Override
+            public Long next() {
+                last = snapshot.nextLong();
+                hasLast = true;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (!hasLast) {
+                    throw new IllegalStateException();
+                }
+                hasLast = false;
+                LongArraySet.this.remove(last);
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Компактное хранение дружеских связей пользователя.
+ * Каждая связь упакована в один long: id друга в старших битах и статус дружбы в младшем бите.
+ * Связи отсортированы по id друга и лежат в блоках SortedLongBlocks; изменения публикуют новую
+ * неизменяемую версию блоков, поэтому чтение не требует блокировок. Вставка, удаление и смена статуса
+ * копируют один блок и таблицу блоков - O(√n), поиск - O(log n).
+ */
+public class PackedFriendshipMap extends AbstractMap<Long, FriendshipStatus> {
+
+    private static final long CONFIRMED_BIT = 1L;
+    private static final int STATUS_BITS = 1;
+    private static final long ABSENT = -1;
+
+    // Как в LongArraySet: volatile-поле и обновление через updater
+    private static final AtomicReferenceFieldUpdater<PackedFriendshipMap, SortedLongBlocks> EDGES =
+            AtomicReferenceFieldUpdater.newUpdater(PackedFriendshipMap.class, SortedLongBlocks.class, "edges");
+
+    private volatile SortedLongBlocks edges;
+
+    public PackedFriendshipMap() {
+        edges = SortedLongBlocks.empty(STATUS_BITS);
+    }
+
+    // Массив строится целиком и сортируется один раз, без копирования на каждую связь
+    public PackedFriendshipMap(Map<Long, FriendshipStatus> source) {
+        long[] packed = new long[source.size()];
+        int size = 0;
+        for (Map.Entry<Long, FriendshipStatus> entry : source.entrySet()) {
+            packed[size++] = pack(entry.getKey(), entry.getValue());
+        }
+        Arrays.sort(packed, 0, size);
+        edges = SortedLongBlocks.of(packed, size, STATUS_BITS);
+    }
+
+    @Override
+    public int size() {
+        return edges.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long id && edges.containsKey(id);
+    }
+
+    @Override
+    public FriendshipStatus get(Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        long packed = edges.find(id, ABSENT);
+        return packed != ABSENT ? status(packed) : null;
+    }
+
+    @Override
+    public FriendshipStatus put(Long id, FriendshipStatus status) {
+        long packed = pack(id, status);
+        while (true) {
+            SortedLongBlocks current = edges;
+            long previous = current.find(id, ABSENT);
+            SortedLongBlocks updated = current.with(packed);
+            if (updated == current || EDGES.compareAndSet(this, current, updated)) {
+                return previous != ABSENT ? status(previous) : null;
+            }
+        }
+    }
+
+    @Override
+    public FriendshipStatus remove(Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        while (true) {
+            SortedLongBlocks current = edges;
+            long previous = current.find(id, ABSENT);
+            if (previous == ABSENT) {
+                return null;
+            }
+            if (EDGES.compareAndSet(this, current, current.without(id))) {
+                return status(previous);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        edges = SortedLongBlocks.empty(STATUS_BITS);
+    }
+
+    // Отсортированный массив id друзей с подтверждённой дружбой
+    public long[] confirmedIds() {
+        SortedLongBlocks current = edges;
+        long[] result = new long[current.size()];
+        int size = 0;
+        for (PrimitiveIterator.OfLong iterator = current.iterator(); iterator.hasNext(); ) {
+            long packed = iterator.nextLong();
+            if ((packed & CONFIRMED_BIT) != 0) {
+                result[size++] = packed >>> STATUS_BITS;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    @Override
+    public Set<Entry<Long, FriendshipStatus>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return PackedFriendshipMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<Long, FriendshipStatus>> iterator() {
+                PrimitiveIterator.OfLong snapshot = edges.iterator();
+                return new Iterator<>() {
+                    private Entry<Long, FriendshipStatus> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return snapshot.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Long, FriendshipStatus> next() {
+                        long packed = snapshot.nextLong();
+                        last = new SimpleImmutableEntry<>(packed >>> STATUS_BITS, status(packed));
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        PackedFriendshipMap.this.remove(last.getKey());
+                        last = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private static long pack(long id, FriendshipStatus status) {
+        if (id < 0 || id > Long.MAX_VALUE >>> 1) {
+            throw new IllegalArgumentException("Недопустимый id друга: " + id);
+        }
+        return (id << STATUS_BITS) | (status == FriendshipStatus.CONFIRMED ? CONFIRMED_BIT : 0);
+    }
+
+    private static FriendshipStatus status(long packed) {
+        return (packed & CONFIRMED_BIT) != 0 ? FriendshipStatus.CONFIRMED : FriendshipStatus.PENDING;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными массивами id.
+ */
+public final class SortedLongArrays {
+
+    // Во сколько раз один массив должен быть длиннее другого, чтобы выгоднее был галопирующий поиск
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedLongArrays() {
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов без повторов.
+     * Для массивов сравнимой длины используется слияние за O(n + m),
+     * при сильной разнице длин - галопирующий поиск за O(n log(m / n)).
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        if (small.length == 0) {
+            return small;
+        }
+        return (long) small.length * GALLOP_RATIO < large.length
+                ? gallopIntersect(small, large)
+                : mergeIntersect(small, large);
+    }
+
+    private static long[] mergeIntersect(long[] small, long[] large) {
+        long[] result = new long[small.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            if (small[i] < large[j]) {
+                i++;
+            } else if (small[i] > large[j]) {
+                j++;
+            } else {
+                result[size++] = small[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] gallopIntersect(long[] small, long[] large) {
+        long[] result = new long[small.length];
+        int size = 0;
+        int from = 0;
+        for (long value : small) {
+            // Экспоненциально расширяем окно поиска, затем ищем в нём двоичным поиском
+            int bound = 1;
+            while (from + bound < large.length && large[from + bound] < value) {
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(large, from, Math.min(from + bound + 1, large.length), value);
+            if (index >= 0) {
+                result[size++] = value;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,210 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Неизменяемая отсортированная последовательность long, разбитая на блоки ограниченного размера.
+ * Изменение копирует один блок и таблицу ссылок на блоки, остальные блоки общие с прежней версией,
+ * поэтому вставка и удаление стоят O(√n) вместо O(n) при копировании всего массива.
+ * Элементы упорядочены по ключу element >>> shift: у множества id ключ - само значение,
+ * у упакованных связей - id без младших служебных битов.
+ */
+final class SortedLongBlocks {
+
+    // Блоки меньше этого размера не делятся: у небольших множеств остаётся один блок
+    private static final int MIN_BLOCK = 64;
+    private static final long[][] NO_BLOCKS = new long[0][];
+    // Пустые последовательности общие, чтобы новое множество не создавало лишний объект
+    private static final SortedLongBlocks[] EMPTY = {new SortedLongBlocks(NO_BLOCKS, 0, 0),
+            new SortedLongBlocks(NO_BLOCKS, 0, 1)};
+
+    private final long[][] blocks;
+    private final int size;
+    private final int shift;
+
+    private SortedLongBlocks(long[][] blocks, int size, int shift) {
+        this.blocks = blocks;
+        this.size = size;
+        this.shift = shift;
+    }
+
+    static SortedLongBlocks empty(int shift) {
+        return shift < EMPTY.length ? EMPTY[shift] : new SortedLongBlocks(NO_BLOCKS, 0, shift);
+    }
+
+    // Последовательность из первых length элементов массива, отсортированных по ключу и без повторов ключей
+    static SortedLongBlocks of(long[] sorted, int length, int shift) {
+        if (length == 0) {
+            return empty(shift);
+        }
+        int blockSize = maxBlock(length);
+        long[][] blocks = new long[(length + blockSize - 1) / blockSize][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = Arrays.copyOfRange(sorted, i * blockSize, Math.min(length, (i + 1) * blockSize));
+        }
+        return new SortedLongBlocks(blocks, length, shift);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(long key) {
+        return size != 0 && indexOf(blocks[blockFor(key)], key) >= 0;
+    }
+
+    // Элемент с ключом key или absent, если такого нет
+    long find(long key, long absent) {
+        if (size == 0) {
+            return absent;
+        }
+        long[] block = blocks[blockFor(key)];
+        int index = indexOf(block, key);
+        return index >= 0 ? block[index] : absent;
+    }
+
+    // Версия с элементом: заменяет элемент с тем же ключом; если такой элемент уже есть, возвращается this
+    SortedLongBlocks with(long element) {
+        if (size == 0) {
+            return new SortedLongBlocks(new long[][]{{element}}, 1, shift);
+        }
+        long key = element >>> shift;
+        int blockIndex = blockFor(key);
+        long[] block = blocks[blockIndex];
+        int index = indexOf(block, key);
+        if (index >= 0) {
+            if (block[index] == element) {
+                return this;
+            }
+            long[] replaced = block.clone();
+            replaced[index] = element;
+            return replace(blockIndex, replaced, size);
+        }
+        int insertAt = -index - 1;
+        long[] grown = new long[block.length + 1];
+        System.arraycopy(block, 0, grown, 0, insertAt);
+        grown[insertAt] = element;
+        System.arraycopy(block, insertAt, grown, insertAt + 1, block.length - insertAt);
+        if (grown.length <= maxBlock(size + 1)) {
+            return replace(blockIndex, grown, size + 1);
+        }
+        // Переполненный блок делится пополам, таблица блоков растёт на одну ссылку
+        int half = grown.length >>> 1;
+        long[][] table = new long[blocks.length + 1][];
+        System.arraycopy(blocks, 0, table, 0, blockIndex);
+        table[blockIndex] = Arrays.copyOfRange(grown, 0, half);
+        table[blockIndex + 1] = Arrays.copyOfRange(grown, half, grown.length);
+        System.arraycopy(blocks, blockIndex + 1, table, blockIndex + 2, blocks.length - blockIndex - 1);
+        return new SortedLongBlocks(table, size + 1, shift);
+    }
+
+    // Версия без элемента с ключом key; если его нет, возвращается this
+    SortedLongBlocks without(long key) {
+        if (size == 0) {
+            return this;
+        }
+        int blockIndex = blockFor(key);
+        long[] block = blocks[blockIndex];
+        int index = indexOf(block, key);
+        if (index < 0) {
+            return this;
+        }
+        if (block.length > 1) {
+            long[] shrunk = new long[block.length - 1];
+            System.arraycopy(block, 0, shrunk, 0, index);
+            System.arraycopy(block, index + 1, shrunk, index, block.length - index - 1);
+            return replace(blockIndex, shrunk, size - 1);
+        }
+        // Опустевший блок убирается из таблицы
+        if (blocks.length == 1) {
+            return empty(shift);
+        }
+        long[][] table = new long[blocks.length - 1][];
+        System.arraycopy(blocks, 0, table, 0, blockIndex);
+        System.arraycopy(blocks, blockIndex + 1, table, blockIndex, blocks.length - blockIndex - 1);
+        return new SortedLongBlocks(table, size - 1, shift);
+    }
+
+    // Все элементы одним отсортированным массивом
+    long[] toArray() {
+        long[] result = new long[size];
+        int position = 0;
+        for (long[] block : blocks) {
+            System.arraycopy(block, 0, result, position, block.length);
+            position += block.length;
+        }
+        return result;
+    }
+
+    PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int blockIndex;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return blockIndex < blocks.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long[] block = blocks[blockIndex];
+                long value = block[position++];
+                if (position == block.length) {
+                    blockIndex++;
+                    position = 0;
+                }
+                return value;
+            }
+        };
+    }
+
+    private SortedLongBlocks replace(int blockIndex, long[] block, int newSize) {
+        long[][] table = blocks.clone();
+        table[blockIndex] = block;
+        return new SortedLongBlocks(table, newSize, shift);
+    }
+
+    // Последний блок, первый ключ которого не больше key (или первый блок)
+    private int blockFor(long key) {
+        int low = 0;
+        int high = blocks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks[mid][0] >>> shift <= key) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Двоичный поиск по ключу внутри блока, при отсутствии возвращает -(точка вставки) - 1
+    private int indexOf(long[] block, long key) {
+        int low = 0;
+        int high = block.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = block[mid] >>> shift;
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // Наибольший размер блока растёт как 2√n: и блок, и таблица блоков остаются порядка √n
+    private static int maxBlock(int size) {
+        return Math.max(MIN_BLOCK, 2 * (int) Math.sqrt(size));
+    }
+}
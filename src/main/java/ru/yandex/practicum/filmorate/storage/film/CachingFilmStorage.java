@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш фильмов по id поверх хранилища в БД.
+ * Вес фильма растёт с количеством лайков, при превышении общего веса вытесняются редко используемые записи.
+ * Любое изменение фильма сбрасывает его запись, поэтому повторное чтение идёт в БД.
+ */
+@Primary
+@Component
+@Profile("jdbc")
+public class CachingFilmStorage implements FilmStorage, MeterBinder {
+
+    private final FilmStorage delegate;
+    private final EntityCache<Film> cache;
+
+    @Autowired
+    public CachingFilmStorage(JdbcFilmStorage delegate,
+                              @Value("${filmorate.cache.films.maximum-weight:1000000}") long maximumWeight) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maximumWeight, (Long id, Film film) -> 1 + film.getLikes().size() + film.getGenres().size());
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public Film create(Film film) {
+        Film created = delegate.create(film);
+        cache.put(created.getIdFilm(), created);
+        return created;
+    }
+
+    @Override
+    public Film update(Film newFilm) {
+        try {
+            return delegate.update(newFilm);
+        } finally {
+            cache.invalidate(newFilm.getIdFilm());
+        }
+    }
+
+    @Override
+    public Optional<Film> getFilm(Long id) {
+        // Параллельные промахи по одному id приводят к одному запросу в БД
+        return Optional.ofNullable(cache.get(id, key -> delegate.getFilm(key).orElse(null)));
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        try {
+            return delegate.addLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            cache.invalidate(filmId);
+        }
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        try {
+            return delegate.addLikes(likes);
+        } finally {
+            cache.invalidateAll(likes.stream().map(FilmLike::getFilmId).collect(Collectors.toSet()));
+        }
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Long genreId, MotionPictureAssociation rating, Integer year) {
+        return delegate.getPopular(count, genreId, rating, year);
+    }
+
+    @Override
+    public List<Film> search(String query, int count) {
+        return delegate.search(query, count);
+    }
+
+    @Override
+    public List<Film> findRecommendations(Long userId, int neighbours, int count) {
+        return delegate.findRecommendations(userId, neighbours, count);
+    }
+
+    // Статистика попаданий и промахов кэша
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry, "films");
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * Индексы популярности фильмов: общий и отдельные по каждому жанру, рейтингу и году выпуска.
+ * Запрос с фильтрами обходит самый маленький из подходящих индексов в порядке популярности
+ * и проверяет остальные условия по самому фильму, не просматривая всю коллекцию.
+ */
+class FacetedPopularityIndex {
+
+    private final PopularityIndex all = new PopularityIndex();
+    private final Map<Long, PopularityIndex> byGenre = new ConcurrentHashMap<>();
+    private final Map<MotionPictureAssociation, PopularityIndex> byRating = new ConcurrentHashMap<>();
+    private final Map<Integer, PopularityIndex> byYear = new ConcurrentHashMap<>();
+
+    // Добавление фильма во все подходящие индексы
+    void add(Film film) {
+        int likes = film.getLikes().size();
+        all.add(film.getIdFilm(), likes);
+        facets(film, true).forEach(index -> index.add(film.getIdFilm(), likes));
+    }
+
+    // Удаление фильма из всех индексов, в которых он учтен с указанным количеством лайков
+    void remove(Film film, int likes) {
+        all.remove(film.getIdFilm(), likes);
+        facets(film, false).forEach(index -> index.remove(film.getIdFilm(), likes));
+    }
+
+    // Перемещение фильма во всех индексах после изменения количества лайков
+    void move(Film film, int oldLikes, int newLikes) {
+        all.move(film.getIdFilm(), oldLikes, newLikes);
+        facets(film, false).forEach(index -> index.move(film.getIdFilm(), oldLikes, newLikes));
+    }
+
+    // Id самых популярных фильмов, удовлетворяющих всем заданным (не null) условиям
+    List<Long> top(int count, Long genreId, MotionPictureAssociation rating, Integer year,
+                   LongFunction<Film> films) {
+        List<PopularityIndex> candidates = new ArrayList<>(3);
+        if (genreId != null) {
+            candidates.add(byGenre.get(genreId));
+        }
+        if (rating != null) {
+            candidates.add(byRating.get(rating));
+        }
+        if (year != null) {
+            candidates.add(byYear.get(year));
+        }
+        if (candidates.isEmpty()) {
+            return all.top(count);
+        }
+        if (candidates.contains(null)) {
+            return List.of();
+        }
+        PopularityIndex smallest = candidates.stream()
+                .min(Comparator.comparingInt(PopularityIndex::size))
+                .orElseThrow();
+        if (candidates.size() == 1) {
+            return smallest.top(count);
+        }
+        return smallest.top(count, filmId -> {
+            Film film = films.apply(filmId);
+            return film != null && matches(film, genreId, rating, year);
+        });
+    }
+
+    private boolean matches(Film film, Long genreId, MotionPictureAssociation rating, Integer year) {
+        return (genreId == null || genres(film).stream().anyMatch(genre -> genreId.equals(genre.getIdGenre())))
+                && (rating == null || rating == film.getRating())
+                && (year == null || year == film.getReleaseDate().getYear());
+    }
+
+    // Индексы жанров, рейтинга и года фильма; отсутствующие создаются только при добавлении
+    private List<PopularityIndex> facets(Film film, boolean create) {
+        List<PopularityIndex> result = new ArrayList<>();
+        genres(film).stream()
+                .map(Genre::getIdGenre)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(genreId -> result.add(facet(byGenre, genreId, create)));
+        result.add(facet(byRating, film.getRating(), create));
+        result.add(facet(byYear, film.getReleaseDate().getYear(), create));
+        result.removeIf(Objects::isNull);
+        return result;
+    }
+
+    private static Set<Genre> genres(Film film) {
+        return film.getGenres() != null ? film.getGenres() : Set.of();
+    }
+
+    private static <K> PopularityIndex facet(Map<K, PopularityIndex> indexes, K key, boolean create) {
+        return create ? indexes.computeIfAbsent(key, k -> new PopularityIndex()) : indexes.get(key);
+    }
+}
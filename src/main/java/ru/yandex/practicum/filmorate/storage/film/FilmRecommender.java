@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Рекомендации фильмов по лайкам похожих пользователей (коллаборативная фильтрация).
+ * Похожесть - количество общих лайков. Рекомендуются фильмы ближайших соседей,
+ * которые пользователь еще не лайкал, с весом, равным сумме похожести лайкнувших соседей.
+ */
+final class FilmRecommender {
+
+    // С этого количества лайков пользователя подсчет похожести распараллеливается в общем ForkJoin пуле
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private FilmRecommender() {
+    }
+
+    /**
+     * @param userId     id пользователя, для которого подбираются фильмы
+     * @param likedFilms отсортированные id фильмов, которые пользователь уже лайкал
+     * @param likersOf   id пользователей, лайкнувших фильм, по id фильма
+     * @param filmsOf    отсортированные id фильмов, лайкнутых пользователем, по id пользователя
+     * @param neighbours сколько самых похожих пользователей учитывать
+     * @param count      сколько фильмов вернуть
+     * @return id фильмов по убыванию веса, при равенстве - по возрастанию id
+     */
+    static long[] recommend(long userId, long[] likedFilms, LongFunction<Collection<Long>> likersOf,
+                            LongFunction<long[]> filmsOf, int neighbours, int count) {
+        Map<Long, Long> similarity = countOverlaps(userId, likedFilms, likersOf);
+        Map<Long, Long> scores = new HashMap<>();
+        for (long[] neighbour : top(similarity, neighbours)) {
+            for (long filmId : filmsOf.apply(neighbour[0])) {
+                if (Arrays.binarySearch(likedFilms, filmId) < 0) {
+                    scores.merge(filmId, neighbour[1], Long::sum);
+                }
+            }
+        }
+        long[][] best = top(scores, count);
+        long[] result = new long[best.length];
+        for (int i = 0; i < best.length; i++) {
+            result[i] = best[i][0];
+        }
+        return result;
+    }
+
+    // Количество общих лайков с каждым пользователем, лайкавшим те же фильмы
+    private static Map<Long, Long> countOverlaps(long userId, long[] likedFilms,
+                                                 LongFunction<Collection<Long>> likersOf) {
+        LongStream films = LongStream.of(likedFilms);
+        if (likedFilms.length >= PARALLEL_THRESHOLD) {
+            films = films.parallel();
+        }
+        return films.collect(HashMap::new,
+                (overlaps, filmId) -> {
+                    for (Long likerId : likersOf.apply(filmId)) {
+                        if (likerId != userId) {
+                            overlaps.merge(likerId, 1L, Long::sum);
+                        }
+                    }
+                },
+                (left, right) -> right.forEach((likerId, overlap) -> left.merge(likerId, overlap, Long::sum)));
+    }
+
+    // Пары (id, вес) с наибольшим весом по убыванию, при равенстве - по возрастанию id
+    private static long[][] top(Map<Long, Long> weights, int count) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(count + 1, (a, b) -> a[1] != b[1]
+                ? Long.compare(a[1], b[1])
+                : Long.compare(b[0], a[0]));
+        weights.forEach((id, weight) -> {
+            heap.add(new long[]{id, weight});
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        });
+        long[][] result = new long[heap.size()][];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Обратный индекс для полнотекстового поиска по названию и описанию фильмов.
+ * Слово -> (id фильма -> вес слова в фильме). Слова хранятся в отсортированной карте,
+ * поэтому поиск по префиксу - это обход диапазона ключей, а не всего словаря.
+ * Читатели не блокируются: изменения индекса видны им по мере применения.
+ */
+class FilmSearchIndex {
+
+    // Слово из названия весит больше, чем слово из описания
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Полное совпадение слова ценнее совпадения по префиксу
+    private static final int EXACT_MATCH_FACTOR = 2;
+    // Более короткие слова запроса ищутся только целиком, иначе префикс совпадет с большей частью словаря
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // Ключи со временем могут остаться с пустыми картами: удаление ключа гонялось бы с параллельным добавлением
+    private final NavigableMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    // Добавление слов фильма в индекс
+    void add(Film film) {
+        weights(film).forEach((token, weight) -> postings
+                .computeIfAbsent(token, t -> new ConcurrentHashMap<>())
+                .put(film.getIdFilm(), weight));
+    }
+
+    // Удаление слов фильма из индекса
+    void remove(Film film) {
+        weights(film).keySet().forEach(token -> {
+            Map<Long, Integer> films = postings.get(token);
+            if (films != null) {
+                films.remove(film.getIdFilm());
+            }
+        });
+    }
+
+    /**
+     * Id фильмов, содержащих все слова запроса целиком или как префикс слова,
+     * по убыванию релевантности с учетом количества лайков, при равенстве - по возрастанию id.
+     */
+    List<Long> search(String query, int count, LongToIntFunction likes) {
+        List<String> tokens = tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        List<Map<Long, Integer>> matches = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<Long, Integer> tokenMatches = match(token);
+            if (tokenMatches.isEmpty()) {
+                return List.of();
+            }
+            matches.add(tokenMatches);
+        }
+        // Пересечение начинается с самого короткого списка
+        matches.sort(Comparator.comparingInt(Map::size));
+        PriorityQueue<Scored> top = new PriorityQueue<>(count + 1, Comparator.reverseOrder());
+        matches.getFirst().forEach((filmId, firstScore) -> {
+            int relevance = firstScore;
+            for (int i = 1; i < matches.size(); i++) {
+                Integer score = matches.get(i).get(filmId);
+                if (score == null) {
+                    return;
+                }
+                relevance += score;
+            }
+            top.add(new Scored(filmId, relevance + Math.log1p(likes.applyAsInt(filmId))));
+            if (top.size() > count) {
+                top.poll();
+            }
+        });
+        List<Scored> result = new ArrayList<>(top);
+        result.sort(Comparator.naturalOrder());
+        return result.stream().map(Scored::filmId).toList();
+    }
+
+    // Слова текста в нижнем регистре, без знаков препинания
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT).replace('ё', 'е'))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Лучший вес слова запроса в каждом фильме среди всех слов индекса, начинающихся с него
+    private Map<Long, Integer> match(String token) {
+        Map<Long, Integer> result = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> range = token.length() < MIN_PREFIX_LENGTH
+                ? postings.subMap(token, true, token, true)
+                : postings.subMap(token, true, token + Character.MAX_VALUE, true);
+        range.forEach((term, films) -> {
+            int factor = term.equals(token) ? EXACT_MATCH_FACTOR : 1;
+            films.forEach((filmId, weight) -> result.merge(filmId, weight * factor, Math::max));
+        });
+        return result;
+    }
+
+    private static Map<String, Integer> weights(Film film) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(film.getNameFilm()).forEach(token -> weights.merge(token, NAME_WEIGHT, Math::max));
+        tokenize(film.getDescription()).forEach(token -> weights.merge(token, DESCRIPTION_WEIGHT, Math::max));
+        return weights;
+    }
+
+    // Лучший результат идет первым
+    private record Scored(long filmId, double score) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface FilmStorage {
 
     // Вывод всех фильмов содержащихся в коллекции
     Collection<Film> findAll();
 
+    // Вывод не более limit фильмов с id больше after в порядке возрастания id
+    List<Film> findPage(long after, int limit);
+
     // Добавление нового фильма в коллекцию
     Film create(Film film);
 
@@ -18,4 +25,34 @@ public interface FilmStorage {
 
     // Вывод фильма по его id
     Optional<Film> getFilm(Long id);
+
+    // Добавление лайка фильму от пользователя, false - если лайк уже стоял
+    boolean addLike(Long filmId, Long userId);
+
+    // Удаление лайка пользователя у фильма, false - если лайка не было
+    boolean removeLike(Long filmId, Long userId);
+
+    // Вывод самых популярных фильмов по количеству лайков
+    default List<Film> getPopular(int count) {
+        return getPopular(count, null, null, null);
+    }
+
+    // Вывод самых популярных фильмов с фильтрами по жанру, рейтингу и году выпуска, null - без фильтра
+    List<Film> getPopular(int count, Long genreId, MotionPictureAssociation rating, Integer year);
+
+    // Пакетное добавление фильмов, id выделяются одним блоком
+    List<Film> createAll(List<Film> films);
+
+    // Id из переданных, под которыми в коллекции есть фильмы
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    // Пакетное добавление лайков за один проход по хранилищу, фильмы должны существовать.
+    // Возвращает лайки, которых раньше не было, в порядке переданных; повтор внутри пакета не учитывается
+    List<FilmLike> addLikes(Collection<FilmLike> likes);
+
+    // Поиск по словам названия и описания, с учетом префиксов, по убыванию релевантности и лайков
+    List<Film> search(String query, int count);
+
+    // Рекомендации пользователю: фильмы, которые лайкали neighbours самых похожих по лайкам пользователей
+    List<Film> findRecommendations(Long userId, int neighbours, int count);
 }
@@ -1,53 +1,360 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.storage.IdSequence;
+import ru.yandex.practicum.filmorate.storage.PersistentLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLock;
+import ru.yandex.practicum.filmorate.storage.edge.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.persistence.Journal;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 @Slf4j
 @Component
+@Profile("!jdbc")
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
+    // Позиция вместо записи в журнал, когда операция ничего не изменила; sync по ней не ждёт
+    private static final long UNCHANGED = -1;
+
+    // Текущая версия коллекции: читатели обходят полученную версию без блокировок, запись публикует новую.
+    // Лайки меняются внутри фильма (copy-on-write множество) и новую версию коллекции не создают
+    private final AtomicReference<PersistentLongMap<Film>> films = new AtomicReference<>(PersistentLongMap.empty());
+    private final FacetedPopularityIndex popularity = new FacetedPopularityIndex();
+    private final UserLikesIndex userLikes = new UserLikesIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final IdSequence ids = new IdSequence();
+    private final StripedLock locks = new StripedLock();
+    // Хранить лайки в компактном виде (отсортированный массив long) вместо множества Long
+    private final boolean compactEdges;
+    // Журнал изменений подключается после восстановления состояния с диска, если хранение на диске включено
+    private volatile Journal journal = Journal.NONE;
+
+    public InMemoryFilmStorage() {
+        this(true);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(@Value("${filmorate.storage.compact-edges:true}") boolean compactEdges) {
+        this.compactEdges = compactEdges;
+    }
 
     @Override
     public Collection<Film> findAll() {
-        log.info("Получаем полный список фильмов содержащихся в коллекции");
-        return films.values();
+        log.debug("Получаем полный список фильмов содержащихся в коллекции");
+        return films.get().values();
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получаем до {} фильмов с id больше {}", limit, after);
+        }
+        PersistentLongMap<Film> snapshot = films.get();
+        List<Film> page = new ArrayList<>(Math.min(limit, snapshot.size()));
+        Iterator<Film> iterator = snapshot.valuesAfter(after);
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
     }
 
     @Override
     public Film create(Film film) {
         log.debug("Сохраняем фильм в коллекцию");
-        films.put(film.getIdFilm(), film);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        // Id выдается только после проверок, иначе отклоненное создание оставляло бы пропуск в нумерации
+        log.trace("Присваиваем фильму уникальный id");
+        film.setIdFilm(ids.next());
+        journal.sync(store(film, journal));
         log.info("Фильм успешно добавлени с id: {}", film.getIdFilm());
         return film;
     }
 
+    @Override
+    public List<Film> createAll(List<Film> newFilms) {
+        log.debug("Пакетно сохраняем {} фильмов в коллекцию", newFilms.size());
+        if (newFilms.isEmpty()) {
+            return List.of();
+        }
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long firstId = ids.reserve(newFilms.size());
+        long position = 0;
+        for (int i = 0; i < newFilms.size(); i++) {
+            Film film = newFilms.get(i);
+            film.setIdFilm(firstId + i);
+            position = store(film, journal);
+        }
+        journal.sync(position);
+        log.info("Добавлено {} фильмов с id от {}", newFilms.size(), firstId);
+        return newFilms;
+    }
+
     @Override
     public Film update(Film newFilm) {
         log.info("Обновляем данные о фильме с id: {}.", newFilm.getIdFilm());
         log.trace("Проверка наличия в коллекции фильма с id указанным в теле метода PUT");
-        if (films.containsKey(newFilm.getIdFilm())) {
-            films.put(newFilm.getIdFilm(), newFilm);
-            log.info("Данные о фильме {} обновлены", newFilm);
-            return newFilm;
+        initLikes(newFilm);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position;
+        locks.lock(newFilm.getIdFilm());
+        try {
+            Film oldFilm = getExistingFilm(newFilm.getIdFilm());
+            replace(oldFilm, newFilm);
+            position = journal.filmSaved(newFilm);
+        } finally {
+            locks.unlock(newFilm.getIdFilm());
+        }
+        journal.sync(position);
+        log.info("Данные о фильме {} обновлены", newFilm);
+        return newFilm;
+    }
+
+    // Восстановление фильма с его id из снимка или журнала, без записи в журнал
+    public void restore(Film film) {
+        initLikes(film);
+        ids.advanceTo(film.getIdFilm());
+        locks.lock(film.getIdFilm());
+        try {
+            Film oldFilm = films.get().get(film.getIdFilm());
+            if (oldFilm != null) {
+                replace(oldFilm, film);
+                return;
+            }
+        } finally {
+            locks.unlock(film.getIdFilm());
         }
-        log.warn("Фильм с id = {} не найден", newFilm.getIdFilm());
-        throw new NotFoundException("Фильм с id = " + newFilm.getIdFilm() + " не найден");
+        store(film, Journal.NONE);
+    }
+
+    // Подключение журнала изменений: дальнейшие изменения будут записываться в него
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
     }
 
     @Override
     public Optional<Film> getFilm(Long id) {
-        log.info("Вывод фильма с id {}.", id);
-        return Optional.ofNullable(films.get(id));
+        log.debug("Вывод фильма с id {}.", id);
+        return Optional.ofNullable(films.get().get(id));
+    }
+
+    @Override
+    public boolean addLike(Long filmId, Long userId) {
+        log.debug("Добавляем лайк фильму с id {} от пользователя с id {}", filmId, userId);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            int oldLikes = film.getLikes().size();
+            if (film.getLikes().add(userId)) {
+                popularity.move(film, oldLikes, oldLikes + 1);
+                userLikes.add(userId, filmId);
+                position = journal.likeAdded(filmId, userId);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.sync(position);
+        return position != UNCHANGED;
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        log.debug("Удаляем лайк пользователя с id {} у фильма с id {}", userId, filmId);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        locks.lock(filmId);
+        try {
+            Film film = getExistingFilm(filmId);
+            int oldLikes = film.getLikes().size();
+            if (film.getLikes().remove(userId)) {
+                popularity.move(film, oldLikes, oldLikes - 1);
+                userLikes.remove(userId, filmId);
+                position = journal.likeRemoved(filmId, userId);
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        journal.sync(position);
+        return position != UNCHANGED;
+    }
+
+    @Override
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        log.debug("Пакетно добавляем {} лайков", likes.size());
+        Map<Long, List<FilmLike>> likesByFilm = likes.stream()
+                .collect(Collectors.groupingBy(FilmLike::getFilmId, LinkedHashMap::new, Collectors.toList()));
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        Set<FilmLike> added = new HashSet<>();
+        for (Map.Entry<Long, List<FilmLike>> entry : likesByFilm.entrySet()) {
+            Long filmId = entry.getKey();
+            locks.lock(filmId);
+            try {
+                Film film = getExistingFilm(filmId);
+                int oldLikes = film.getLikes().size();
+                for (FilmLike like : entry.getValue()) {
+                    if (film.getLikes().add(like.getUserId())) {
+                        userLikes.add(like.getUserId(), filmId);
+                        position = journal.likeAdded(filmId, like.getUserId());
+                        added.add(like);
+                    }
+                }
+                popularity.move(film, oldLikes, film.getLikes().size());
+            } finally {
+                locks.unlock(filmId);
+            }
+        }
+        journal.sync(position);
+        // Порядок результата - как в переданной коллекции, а не по фильмам
+        return likes.stream()
+                .filter(added::remove)
+                .toList();
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        PersistentLongMap<Film> snapshot = films.get();
+        return filmIds.stream()
+                .filter(snapshot::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Long genreId, MotionPictureAssociation rating, Integer year) {
+        if (log.isDebugEnabled()) {
+            log.debug("Вывод {} самых популярных фильмов, жанр: {}, рейтинг: {}, год: {}",
+                    count, genreId, rating, year);
+        }
+        PersistentLongMap<Film> snapshot = films.get();
+        return popularity.top(count, genreId, rating, year, snapshot::get).stream()
+                .map(snapshot::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> search(String query, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Поиск до {} фильмов по запросу '{}'", count, query);
+        }
+        PersistentLongMap<Film> snapshot = films.get();
+        return searchIndex.search(query, count, filmId -> {
+                    Film film = snapshot.get(filmId);
+                    return film == null ? 0 : film.getLikes().size();
+                }).stream()
+                .map(snapshot::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<Film> findRecommendations(Long userId, int neighbours, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Подбор {} рекомендаций для пользователя с id {} по {} похожим пользователям",
+                    count, userId, neighbours);
+        }
+        PersistentLongMap<Film> snapshot = films.get();
+        long[] filmIds = FilmRecommender.recommend(userId, userLikes.filmsOf(userId),
+                filmId -> {
+                    Film film = snapshot.get(filmId);
+                    return film == null ? List.of() : film.getLikes();
+                },
+                userLikes::filmsOf, neighbours, count);
+        return LongStream.of(filmIds)
+                .mapToObj(snapshot::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // Сохранение нового фильма, возвращает позицию записи в журнале
+    private long store(Film film, Journal journal) {
+        initLikes(film);
+        locks.lock(film.getIdFilm());
+        try {
+            publish(film);
+            popularity.add(film);
+            searchIndex.add(film);
+            film.getLikes().forEach(userId -> userLikes.add(userId, film.getIdFilm()));
+            return journal.filmSaved(film);
+        } finally {
+            locks.unlock(film.getIdFilm());
+        }
+    }
+
+    // Замена фильма новой версией во всех индексах, вызывается под блокировкой фильма
+    private void replace(Film oldFilm, Film newFilm) {
+        publish(newFilm);
+        popularity.remove(oldFilm, oldFilm.getLikes().size());
+        popularity.add(newFilm);
+        searchIndex.remove(oldFilm);
+        searchIndex.add(newFilm);
+        reindexLikes(newFilm.getIdFilm(), oldFilm.getLikes(), newFilm.getLikes());
+    }
+
+    // Публикация версии коллекции с новым или замененным фильмом; копируется только путь к нему в дереве
+    private void publish(Film film) {
+        films.updateAndGet(snapshot -> snapshot.with(film.getIdFilm(), film));
+    }
+
+    private Film getExistingFilm(Long id) {
+        Film film = films.get().get(id);
+        if (film == null) {
+            log.warn("Фильм с id = {} не найден", id);
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return film;
+    }
+
+    // Перенос в обратный индекс лайков, замененных при обновлении фильма
+    private void reindexLikes(long filmId, Set<Long> oldLikes, Set<Long> newLikes) {
+        oldLikes.stream()
+                .filter(userId -> !newLikes.contains(userId))
+                .forEach(userId -> userLikes.remove(userId, filmId));
+        newLikes.stream()
+                .filter(userId -> !oldLikes.contains(userId))
+                .forEach(userId -> userLikes.add(userId, filmId));
+    }
+
+    // Лайки хранятся в потокобезопасном множестве, независимо от того, что пришло в теле запроса
+    private void initLikes(Film film) {
+        Set<Long> source = film.getLikes() != null ? film.getLikes() : Set.of();
+        if (compactEdges) {
+            film.setLikes(new LongArraySet(source));
+        } else {
+            Set<Long> likes = ConcurrentHashMap.newKeySet();
+            likes.addAll(source);
+            film.setLikes(likes);
+        }
     }
 }
@@ -0,0 +1,380 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.storage.IdSequence;
+import ru.yandex.practicum.filmorate.storage.InListChunks;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@Profile("jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS =
+            "SELECT film_id, name, description, release_date, duration, rating FROM films ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final IdSequence ids;
+
+    @Autowired
+    public JdbcFilmStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.ids = new IdSequence(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(film_id), 0) FROM films",
+                Long.class));
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        log.debug("Получаем полный список фильмов из базы данных");
+        return withRelations(jdbcTemplate.query(SELECT_FILMS + "ORDER BY film_id", this::mapFilm));
+    }
+
+    @Override
+    public List<Film> findPage(long after, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получаем до {} фильмов с id больше {}", limit, after);
+        }
+        return withRelations(jdbcTemplate.query(SELECT_FILMS + "WHERE film_id > ? ORDER BY film_id LIMIT ?",
+                this::mapFilm, after, limit));
+    }
+
+    @Override
+    @Transactional
+    public Film create(Film film) {
+        log.debug("Сохраняем фильм в базу данных");
+        film.setIdFilm(ids.next());
+        Set<Long> likes = film.getLikes() != null ? film.getLikes() : Set.of();
+        jdbcTemplate.update("INSERT INTO films (film_id, name, description, release_date, duration, rating, "
+                        + "likes_count) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                film.getIdFilm(), film.getNameFilm(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
+                film.getDuration(), film.getRating().name(), likes.size());
+        saveGenres(List.of(film));
+        saveLikes(likes.stream().map(userId -> new FilmLike(film.getIdFilm(), userId)).toList());
+        log.info("Фильм успешно добавлени с id: {}", film.getIdFilm());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> newFilms) {
+        log.debug("Пакетно сохраняем {} фильмов в базу данных", newFilms.size());
+        if (newFilms.isEmpty()) {
+            return List.of();
+        }
+        long firstId = ids.reserve(newFilms.size());
+        for (int i = 0; i < newFilms.size(); i++) {
+            newFilms.get(i).setIdFilm(firstId + i);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films (film_id, name, description, release_date, duration, rating, "
+                        + "likes_count) VALUES (?, ?, ?, ?, ?, ?, ?)", newFilms, newFilms.size(),
+                (ps, film) -> {
+                    ps.setLong(1, film.getIdFilm());
+                    ps.setString(2, film.getNameFilm());
+                    ps.setString(3, film.getDescription());
+                    ps.setDate(4, Date.valueOf(film.getReleaseDate()));
+                    ps.setInt(5, film.getDuration());
+                    ps.setString(6, film.getRating().name());
+                    ps.setInt(7, film.getLikes() != null ? film.getLikes().size() : 0);
+                });
+        saveGenres(newFilms);
+        saveLikes(newFilms.stream()
+                .filter(film -> film.getLikes() != null)
+                .flatMap(film -> film.getLikes().stream().map(userId -> new FilmLike(film.getIdFilm(), userId)))
+                .toList());
+        log.info("Добавлено {} фильмов с id от {}", newFilms.size(), firstId);
+        return newFilms;
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film newFilm) {
+        log.info("Обновляем данные о фильме с id: {}.", newFilm.getIdFilm());
+        Set<Long> likes = newFilm.getLikes() != null ? newFilm.getLikes() : Set.of();
+        int updated = jdbcTemplate.update("UPDATE films SET name = ?, description = ?, release_date = ?, "
+                        + "duration = ?, rating = ?, likes_count = ? WHERE film_id = ?",
+                newFilm.getNameFilm(), newFilm.getDescription(), Date.valueOf(newFilm.getReleaseDate()),
+                newFilm.getDuration(), newFilm.getRating().name(), likes.size(), newFilm.getIdFilm());
+        if (updated == 0) {
+            log.warn("Фильм с id = {} не найден", newFilm.getIdFilm());
+            throw new NotFoundException("Фильм с id = " + newFilm.getIdFilm() + " не найден");
+        }
+        jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", newFilm.getIdFilm());
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", newFilm.getIdFilm());
+        saveGenres(List.of(newFilm));
+        saveLikes(likes.stream().map(userId -> new FilmLike(newFilm.getIdFilm(), userId)).toList());
+        log.info("Данные о фильме с id {} обновлены", newFilm.getIdFilm());
+        return newFilm;
+    }
+
+    @Override
+    public Optional<Film> getFilm(Long id) {
+        log.debug("Вывод фильма с id {}.", id);
+        return withRelations(jdbcTemplate.query(SELECT_FILMS + "WHERE film_id = ?", this::mapFilm, id))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        log.debug("Добавляем лайк фильму с id {} от пользователя с id {}", filmId, userId);
+        checkFilmExists(filmId);
+        try {
+            int inserted = jdbcTemplate.update("INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)",
+                    filmId, userId, filmId, userId);
+            if (inserted > 0) {
+                jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?", filmId);
+            }
+            return inserted > 0;
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк фильму с id {} от пользователя с id {} уже сохранён", filmId, userId);
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
+        log.debug("Удаляем лайк пользователя с id {} у фильма с id {}", userId, filmId);
+        checkFilmExists(filmId);
+        int deleted = jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+        if (deleted > 0) {
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", filmId);
+        }
+        return deleted > 0;
+    }
+
+    @Override
+    @Transactional
+    public List<FilmLike> addLikes(Collection<FilmLike> likes) {
+        log.debug("Пакетно добавляем {} лайков", likes.size());
+        if (likes.isEmpty()) {
+            return List.of();
+        }
+        List<FilmLike> ordered = new ArrayList<>(likes);
+        // Уже стоящий лайк не затрагивается, поэтому число вставленных строк показывает, был ли лайк новым
+        int[][] counts = jdbcTemplate.batchUpdate("MERGE INTO likes l "
+                        + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (film_id, user_id) "
+                        + "ON l.film_id = v.film_id AND l.user_id = v.user_id "
+                        + "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)",
+                ordered, ordered.size(), (ps, like) -> {
+                    ps.setLong(1, like.getFilmId());
+                    ps.setLong(2, like.getUserId());
+                });
+        Set<Long> filmIds = likes.stream()
+                .map(FilmLike::getFilmId)
+                .collect(Collectors.toSet());
+        namedJdbcTemplate.update("UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l "
+                + "WHERE l.film_id = f.film_id) WHERE f.film_id IN (:ids)", Map.of("ids", filmIds));
+        List<FilmLike> added = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    added.add(ordered.get(index));
+                }
+                index++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> existing = new HashSet<>();
+        InListChunks.forEach(filmIds, chunk -> existing.addAll(namedJdbcTemplate.queryForList(
+                "SELECT film_id FROM films WHERE film_id IN (:ids)", Map.of("ids", chunk), Long.class)));
+        return existing;
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Long genreId, MotionPictureAssociation rating, Integer year) {
+        if (log.isDebugEnabled()) {
+            log.debug("Вывод {} самых популярных фильмов, жанр: {}, рейтинг: {}, год: {}",
+                    count, genreId, rating, year);
+        }
+        StringBuilder sql = new StringBuilder(SELECT_FILMS).append("WHERE TRUE ");
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        if (genreId != null) {
+            sql.append("AND EXISTS (SELECT 1 FROM film_genres g WHERE g.film_id = films.film_id "
+                    + "AND g.genre_id = :genreId) ");
+            params.addValue("genreId", genreId);
+        }
+        if (rating != null) {
+            sql.append("AND rating = :rating ");
+            params.addValue("rating", rating.name());
+        }
+        if (year != null) {
+            // Диапазон дат вместо EXTRACT(YEAR ...), чтобы условие могло использовать индекс
+            sql.append("AND release_date >= :yearStart AND release_date < :nextYearStart ");
+            params.addValue("yearStart", Date.valueOf(LocalDate.of(year, 1, 1)));
+            params.addValue("nextYearStart", Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        sql.append("ORDER BY likes_count DESC, film_id LIMIT :count");
+        return withRelations(namedJdbcTemplate.query(sql.toString(), params, this::mapFilm));
+    }
+
+    @Override
+    public List<Film> search(String query, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Поиск до {} фильмов по запросу '{}'", count, query);
+        }
+        List<String> tokens = FilmSearchIndex.tokenize(query).stream().distinct().toList();
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        // Без полнотекстового индекса БД слово ищется как подстрока; совпадение в названии весит больше
+        StringBuilder where = new StringBuilder("WHERE TRUE ");
+        StringBuilder relevance = new StringBuilder("0");
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count);
+        for (int i = 0; i < tokens.size(); i++) {
+            String pattern = "%" + tokens.get(i).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            params.addValue("token" + i, pattern);
+            where.append("AND (LOWER(name) LIKE :token").append(i)
+                    .append(" OR LOWER(description) LIKE :token").append(i).append(") ");
+            relevance.append(" + CASE WHEN LOWER(name) LIKE :token").append(i).append(" THEN 3 ELSE 1 END");
+        }
+        return withRelations(namedJdbcTemplate.query(SELECT_FILMS + where
+                        + "ORDER BY " + relevance + " + LN(1 + likes_count) DESC, film_id LIMIT :count",
+                params, this::mapFilm));
+    }
+
+    @Override
+    public List<Film> findRecommendations(Long userId, int neighbours, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Подбор {} рекомендаций для пользователя с id {} по {} похожим пользователям",
+                    count, userId, neighbours);
+        }
+        return withRelations(jdbcTemplate.query(SELECT_FILMS
+                        + "JOIN (SELECT l.film_id AS recommended_id, SUM(n.overlap) AS score "
+                        + "FROM (SELECT l2.user_id, COUNT(*) AS overlap FROM likes l1 "
+                        + "JOIN likes l2 ON l2.film_id = l1.film_id AND l2.user_id <> l1.user_id "
+                        + "WHERE l1.user_id = ? GROUP BY l2.user_id ORDER BY overlap DESC, l2.user_id LIMIT ?) n "
+                        + "JOIN likes l ON l.user_id = n.user_id "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM likes m WHERE m.user_id = ? AND m.film_id = l.film_id) "
+                        + "GROUP BY l.film_id ORDER BY score DESC, l.film_id LIMIT ?) r ON r.recommended_id = films.film_id "
+                        + "ORDER BY r.score DESC, r.recommended_id",
+                this::mapFilm, userId, neighbours, userId, count));
+    }
+
+    private void checkFilmExists(Long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films WHERE film_id = ?", Integer.class, id);
+        if (count == null || count == 0) {
+            log.warn("Фильм с id = {} не найден", id);
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+    }
+
+    private void saveGenres(List<Film> films) {
+        List<long[]> filmGenres = films.stream()
+                .filter(film -> film.getGenres() != null)
+                .flatMap(film -> film.getGenres().stream()
+                        .map(Genre::getIdGenre)
+                        .distinct()
+                        .map(genreId -> new long[]{film.getIdFilm(), genreId}))
+                .toList();
+        if (filmGenres.isEmpty()) {
+            return;
+        }
+        Set<Long> genreIds = filmGenres.stream()
+                .map(pair -> pair[1])
+                .collect(Collectors.toSet());
+        int[] known = new int[1];
+        InListChunks.forEach(genreIds, chunk -> known[0] += namedJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM genres WHERE genre_id IN (:ids)", Map.of("ids", chunk), Integer.class));
+        if (known[0] != genreIds.size()) {
+            log.warn("Среди жанров {} есть отсутствующие в справочнике", genreIds);
+            throw new NotFoundException("Жанр с указанным id не найден");
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmGenres,
+                filmGenres.size(), (ps, pair) -> {
+                    ps.setLong(1, pair[0]);
+                    ps.setLong(2, pair[1]);
+                });
+    }
+
+    private void saveLikes(List<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likes, likes.size(),
+                    (ps, like) -> {
+                        ps.setLong(1, like.getFilmId());
+                        ps.setLong(2, like.getUserId());
+                    });
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Лайки фильмов содержат незарегистрированных пользователей");
+            throw new ValidationException("Лайки могут ставить только зарегистрированные пользователи");
+        }
+    }
+
+    // Загрузка жанров и лайков для списка фильмов двумя запросами на каждые InListChunks.LIMIT фильмов
+    private List<Film> withRelations(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, Film> byId = new LinkedHashMap<>();
+        films.forEach(film -> byId.put(film.getIdFilm(), film));
+        InListChunks.forEach(byId.keySet(), ids -> {
+            Map<String, Object> params = Map.of("ids", ids);
+            namedJdbcTemplate.query("SELECT fg.film_id, g.genre_id, g.name FROM film_genres fg "
+                    + "JOIN genres g ON g.genre_id = fg.genre_id "
+                    + "WHERE fg.film_id IN (:ids) ORDER BY fg.film_id, g.genre_id", params, rs -> {
+                        Film film = byId.get(rs.getLong("film_id"));
+                        Genre genre = new Genre(rs.getString("name"));
+                        genre.setIdGenre(rs.getLong("genre_id"));
+                        film.getGenres().add(genre);
+                    });
+            namedJdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)", params,
+                    rs -> {
+                        byId.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+                    });
+        });
+        return films;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film(rs.getString("name"), rs.getString("description"),
+                rs.getDate("release_date").toLocalDate(), MotionPictureAssociation.valueOf(rs.getString("rating")));
+        film.setIdFilm(rs.getLong("film_id"));
+        film.setDuration(rs.getInt("duration"));
+        film.setGenres(new LinkedHashSet<>());
+        return film;
+    }
+}
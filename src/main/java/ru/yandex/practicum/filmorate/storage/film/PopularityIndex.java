@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * Индекс популярности фильмов.
+ * Записи упорядочены по количеству лайков (по убыванию), при равенстве - по id фильма.
+ * Изменение позиции фильма стоит O(log N), чтение первых K фильмов - O(K).
+ */
+class PopularityIndex {
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+    // Размер skip-list считается обходом, поэтому количество фильмов ведется отдельно
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Добавление фильма в индекс
+    void add(long filmId, int likes) {
+        if (entries.add(new Entry(filmId, likes))) {
+            size.incrementAndGet();
+        }
+    }
+
+    // Удаление фильма из индекса
+    void remove(long filmId, int likes) {
+        if (entries.remove(new Entry(filmId, likes))) {
+            size.decrementAndGet();
+        }
+    }
+
+    // Количество фильмов в индексе
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Перемещение фильма после изменения количества лайков. Новая запись добавляется раньше, чем удаляется старая:
+     * в любой момент в индексе есть хотя бы одна запись фильма, а лишнюю на время перемещения отбрасывает top.
+     */
+    void move(long filmId, int oldLikes, int newLikes) {
+        if (oldLikes == newLikes) {
+            return;
+        }
+        entries.add(new Entry(filmId, newLikes));
+        entries.remove(new Entry(filmId, oldLikes));
+    }
+
+    // Id самых популярных фильмов в порядке убывания количества лайков
+    List<Long> top(int count) {
+        return top(count, filmId -> true);
+    }
+
+    /**
+     * Id самых популярных фильмов, прошедших фильтр, в порядке убывания количества лайков.
+     * Обход идёт параллельно с изменениями: фильм, перемещаемый во время обхода, может встретиться
+     * и в старой, и в новой записи, поэтому повторы отбрасываются.
+     */
+    List<Long> top(int count, LongPredicate filter) {
+        Set<Long> result = new LinkedHashSet<>(Math.min(count, size()) * 2);
+        Iterator<Entry> iterator = entries.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            long filmId = iterator.next().filmId();
+            if (filter.test(filmId)) {
+                result.add(filmId);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private record Entry(long filmId, int likes) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.edge.LongArraySet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обратный индекс лайков: id пользователя -> отсортированные id понравившихся ему фильмов.
+ * Позволяет получить лайки пользователя без обхода всех фильмов.
+ */
+class UserLikesIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<Long, LongArraySet> filmsByUser = new ConcurrentHashMap<>();
+
+    // Учет лайка пользователя
+    void add(long userId, long filmId) {
+        filmsByUser.computeIfAbsent(userId, id -> new LongArraySet()).add(filmId);
+    }
+
+    // Учет снятого лайка
+    void remove(long userId, long filmId) {
+        LongArraySet films = filmsByUser.get(userId);
+        if (films != null) {
+            films.remove(filmId);
+        }
+    }
+
+    // Отсортированные id фильмов, которые понравились пользователю
+    long[] filmsOf(long userId) {
+        LongArraySet films = filmsByUser.get(userId);
+        return films == null ? EMPTY : films.toSortedArray();
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Расширяемый буфер для двоичной записи журнала и снимков.
+ */
+class BinaryWriter {
+
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private ByteBuffer buffer;
+
+    BinaryWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    void putByte(int value) {
+        ensure(Byte.BYTES);
+        buffer.put((byte) value);
+    }
+
+    void putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    // Строка в UTF-8 с длиной впереди, null записывается длиной -1
+    void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Запись в формате журнала: [длина][CRC32C][тип][данные].
+     * Длина и контрольная сумма считаются по байтам типа и данных.
+     */
+    void putRecord(byte type, Consumer<BinaryWriter> payload) {
+        int start = buffer.position();
+        putInt(0);
+        putInt(0);
+        putByte(type);
+        try {
+            payload.accept(this);
+        } catch (RuntimeException | Error e) {
+            // Недописанная запись с нулевой длиной оборвала бы чтение всех следующих записей сегмента
+            buffer.position(start);
+            throw e;
+        }
+        int end = buffer.position();
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start + RECORD_HEADER_BYTES, end - start - RECORD_HEADER_BYTES));
+        buffer.putInt(start, end - start - RECORD_HEADER_BYTES);
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    // Запись накопленных байтов в канал целиком
+    void writeTo(FileChannel channel) throws IOException {
+        ByteBuffer data = buffer.slice(0, buffer.position());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    void clear() {
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        grown.put(buffer.flip());
+        buffer = grown;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.edge.LongArraySet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Компактное двоичное представление фильмов и пользователей для журнала и снимков.
+ * Даты хранятся как номер дня, перечисления - как порядковый номер, связи - массивами long.
+ */
+final class EntityCodec {
+
+    private static final MotionPictureAssociation[] RATINGS = MotionPictureAssociation.values();
+    private static final FriendshipStatus[] STATUSES = FriendshipStatus.values();
+
+    private EntityCodec() {
+    }
+
+    static void writeFilm(BinaryWriter out, Film film) {
+        out.putLong(film.getIdFilm());
+        out.putString(film.getNameFilm());
+        out.putString(film.getDescription());
+        out.putLong(film.getReleaseDate().toEpochDay());
+        out.putInt(film.getDuration());
+        out.putByte(film.getRating().ordinal());
+        // Число элементов и сами элементы берутся из одной копии: между size() и обходом
+        // живое множество может измениться, и счётчик разошёлся бы с записанными элементами
+        Genre[] genres = film.getGenres() != null ? film.getGenres().toArray(new Genre[0]) : new Genre[0];
+        out.putInt(genres.length);
+        for (Genre genre : genres) {
+            out.putLong(genre.getIdGenre() != null ? genre.getIdGenre() : -1);
+            out.putString(genre.getName());
+        }
+        long[] likes = toArray(film.getLikes());
+        out.putInt(likes.length);
+        for (long userId : likes) {
+            out.putLong(userId);
+        }
+    }
+
+    static Film readFilm(ByteBuffer in) {
+        long id = in.getLong();
+        String name = getString(in);
+        String description = getString(in);
+        LocalDate releaseDate = LocalDate.ofEpochDay(in.getLong());
+        int duration = in.getInt();
+        Film film = new Film(name, description, releaseDate, getEnum(in, RATINGS));
+        film.setIdFilm(id);
+        film.setDuration(duration);
+        int genreCount = getCount(in, Long.BYTES + Integer.BYTES);
+        Set<Genre> genres = new HashSet<>(genreCount * 2);
+        for (int i = 0; i < genreCount; i++) {
+            long genreId = in.getLong();
+            Genre genre = new Genre(getString(in));
+            genre.setIdGenre(genreId >= 0 ? genreId : null);
+            genres.add(genre);
+        }
+        film.setGenres(genres);
+        int likeCount = getCount(in, Long.BYTES);
+        Set<Long> likes = new HashSet<>(likeCount * 2);
+        for (int i = 0; i < likeCount; i++) {
+            likes.add(in.getLong());
+        }
+        film.setLikes(likes);
+        return film;
+    }
+
+    static void writeUser(BinaryWriter out, User user) {
+        out.putLong(user.getIdUser());
+        out.putString(user.getEmail());
+        out.putString(user.getLogin());
+        out.putString(user.getName());
+        out.putLong(user.getBirthday().toEpochDay());
+        @SuppressWarnings("unchecked")
+        Map.Entry<Long, FriendshipStatus>[] friendship = user.getFriendship().entrySet().toArray(new Map.Entry[0]);
+        out.putInt(friendship.length);
+        for (Map.Entry<Long, FriendshipStatus> entry : friendship) {
+            out.putLong(entry.getKey());
+            out.putByte(entry.getValue().ordinal());
+        }
+    }
+
+    static User readUser(ByteBuffer in) {
+        long id = in.getLong();
+        String email = getString(in);
+        String login = getString(in);
+        String name = getString(in);
+        User user = new User(email, login, LocalDate.ofEpochDay(in.getLong()));
+        user.setIdUser(id);
+        user.setName(name);
+        int friendCount = getCount(in, Long.BYTES + Byte.BYTES);
+        Map<Long, FriendshipStatus> friendship = new HashMap<>(friendCount * 2);
+        for (int i = 0; i < friendCount; i++) {
+            friendship.put(in.getLong(), getEnum(in, STATUSES));
+        }
+        user.setFriendship(friendship);
+        return user;
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new MalformedRecordException("длина строки " + length + " больше остатка записи");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Снимок содержимого множества: LongArraySet отдаёт свой массив целиком, остальные копируются через toArray
+    private static long[] toArray(Set<Long> values) {
+        if (values == null) {
+            return new long[0];
+        }
+        if (values instanceof LongArraySet set) {
+            return set.toSortedArray();
+        }
+        return Arrays.stream(values.toArray(new Long[0])).mapToLong(Long::longValue).toArray();
+    }
+
+    // Число элементов не может превышать остаток записи, иначе запись испорчена
+    private static int getCount(ByteBuffer in, int elementBytes) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / elementBytes) {
+            throw new MalformedRecordException("некорректное число элементов " + count);
+        }
+        return count;
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values) {
+        int ordinal = in.get();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new MalformedRecordException("некорректное значение перечисления " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    // Запись прошла проверку контрольной суммы, но её содержимое не соответствует формату
+    static final class MalformedRecordException extends RuntimeException {
+        MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+}
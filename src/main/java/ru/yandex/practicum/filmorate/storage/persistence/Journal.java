@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Журнал изменений in-memory хранилищ.
+ * Методы записи вызываются под блокировкой изменяемой сущности и только ставят запись в очередь,
+ * возвращая ее позицию. Ожидание сброса на диск (sync) выполняется уже после снятия блокировки,
+ * поэтому записи нескольких потоков сбрасываются на диск одной операцией.
+ * Хранилище меняет память до сброса на диск, поэтому изменения пачки, сброс которой не удался,
+ * остаются в памяти (вызвавшие их запросы получают ошибку). Все последующие изменения отклоняются
+ * проверкой checkWritable, так что расхождение с диском не растет и видно в /actuator/health.
+ */
+public interface Journal {
+
+    // Журнал, который ничего не записывает: используется, пока хранение на диске выключено или идет восстановление
+    Journal NONE = new Journal() {
+        @Override
+        public long filmSaved(Film film) {
+            return 0;
+        }
+
+        @Override
+        public long likeAdded(long filmId, long userId) {
+            return 0;
+        }
+
+        @Override
+        public long likeRemoved(long filmId, long userId) {
+            return 0;
+        }
+
+        @Override
+        public long userSaved(User user) {
+            return 0;
+        }
+
+        @Override
+        public long friendAdded(long userId, long friendId) {
+            return 0;
+        }
+
+        @Override
+        public long friendRemoved(long userId, long friendId) {
+            return 0;
+        }
+
+        @Override
+        public long friendshipConfirmed(long userId, long friendId) {
+            return 0;
+        }
+
+        @Override
+        public void sync(long position) {
+        }
+    };
+
+    // Фильм создан или обновлен
+    long filmSaved(Film film);
+
+    long likeAdded(long filmId, long userId);
+
+    long likeRemoved(long filmId, long userId);
+
+    // Пользователь создан или обновлен
+    long userSaved(User user);
+
+    long friendAdded(long userId, long friendId);
+
+    long friendRemoved(long userId, long friendId);
+
+    long friendshipConfirmed(long userId, long friendId);
+
+    // Ожидание, пока запись с указанной позицией и все предыдущие не окажутся на диске
+    void sync(long position);
+
+    // Проверка перед изменением хранилища: после сбоя записи журнала изменения не принимаются,
+    // иначе в памяти появились бы изменения, которых нет на диске
+    default void checkWritable() {
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Состояние журнала изменений в /actuator/health (компонент journal) и метрике filmorate.journal.failed.
+ * После ошибки записи журнал перестает принимать изменения до перезапуска, а сервис отвечает DOWN.
+ */
+@Component
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+public class JournalHealthIndicator implements HealthIndicator {
+
+    private final PersistenceManager persistenceManager;
+
+    @Autowired
+    public JournalHealthIndicator(PersistenceManager persistenceManager, MeterRegistry registry) {
+        this.persistenceManager = persistenceManager;
+        Gauge.builder("filmorate.journal.failed", persistenceManager,
+                        manager -> manager.journalFailure() == null ? 0 : 1)
+                .description("1, если журнал изменений перестал принимать записи после ошибки")
+                .register(registry);
+    }
+
+    @Override
+    public Health health() {
+        IOException failure = persistenceManager.journalFailure();
+        if (failure != null) {
+            return Health.down(failure).build();
+        }
+        return Health.up().build();
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранение состояния in-memory хранилищ на диске: журнал изменений и периодические снимки.
+ * При старте загружается последний снимок и применяются сегменты журнала, записанные после него,
+ * затем журнал подключается к хранилищам. После каждого снимка старые сегменты удаляются.
+ */
+@Slf4j
+@Component
+@Profile("!jdbc")
+@ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+public class PersistenceManager {
+
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final boolean fsync;
+    private final Duration snapshotInterval;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "filmorate-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile WriteAheadLog journal;
+
+    @Autowired
+    public PersistenceManager(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              @Value("${filmorate.persistence.directory:./data}") Path directory,
+                              @Value("${filmorate.persistence.fsync:true}") boolean fsync,
+                              @Value("${filmorate.persistence.snapshot-interval:10m}") Duration snapshotInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long startedAt = System.nanoTime();
+        long lastSegment = recover(directory, filmStorage, userStorage);
+        journal = WriteAheadLog.open(directory, lastSegment + 1, fsync);
+        filmStorage.attachJournal(journal);
+        userStorage.attachJournal(journal);
+        log.info("Состояние хранилищ восстановлено из {} за {} мс", directory.toAbsolutePath(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Снимок текущего состояния: журнал переключается на новый сегмент, хранилища записываются в снимок,
+     * после чего сегменты и снимки, вошедшие в новый снимок, удаляются.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            long firstSegment = journal.rotate();
+            Path file = SnapshotFile.write(directory, firstSegment, filmStorage.findAll(), userStorage.findAll());
+            journal.deleteSegmentsBefore(firstSegment);
+            SnapshotFile.deleteBefore(directory, firstSegment);
+            log.info("Снимок хранилищ {} записан за {} мс", file.getFileName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Ошибка записи, после которой журнал перестал принимать изменения, или null, если журнал исправен
+    public IOException journalFailure() {
+        WriteAheadLog current = journal;
+        return current == null ? null : current.failure();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        scheduler.shutdownNow();
+        try {
+            // Снимок при остановке сокращает журнал, который придется применять при следующем старте
+            snapshot();
+        } finally {
+            // После сбоя журнала снимок не пишется, но журнал все равно отключается и закрывается
+            filmStorage.attachJournal(Journal.NONE);
+            userStorage.attachJournal(Journal.NONE);
+            journal.close();
+        }
+    }
+
+    /**
+     * Загрузка последнего снимка и применение журнала в пустые хранилища.
+     * Возвращает номер последнего прочитанного сегмента журнала.
+     */
+    public static long recover(Path directory, InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage)
+            throws IOException {
+        OptionalLong snapshot = SnapshotFile.latest(directory);
+        long firstSegment = snapshot.orElse(1);
+        if (snapshot.isPresent()) {
+            SnapshotFile.read(directory, firstSegment, record -> apply(record, filmStorage, userStorage));
+        }
+        return WriteAheadLog.replay(directory, firstSegment, record -> apply(record, filmStorage, userStorage));
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок хранилищ", e);
+        }
+    }
+
+    // Записи применяются через обычные операции хранилищ: пока журнал не подключен, они не журналируются
+    private static void apply(ByteBuffer record, InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage) {
+        byte type = record.get();
+        try {
+            switch (type) {
+                case WriteAheadLog.FILM_SAVED -> filmStorage.restore(EntityCodec.readFilm(record));
+                case WriteAheadLog.LIKE_ADDED -> filmStorage.addLike(record.getLong(), record.getLong());
+                case WriteAheadLog.LIKE_REMOVED -> filmStorage.removeLike(record.getLong(), record.getLong());
+                case WriteAheadLog.USER_SAVED -> userStorage.restore(EntityCodec.readUser(record));
+                case WriteAheadLog.FRIEND_ADDED -> userStorage.addFriend(record.getLong(), record.getLong());
+                case WriteAheadLog.FRIEND_REMOVED -> userStorage.removeFriend(record.getLong(), record.getLong());
+                case WriteAheadLog.FRIENDSHIP_CONFIRMED ->
+                        userStorage.confirmFriendship(record.getLong(), record.getLong());
+                default -> log.warn("Неизвестный тип записи журнала: {}", type);
+            }
+        } catch (NotFoundException e) {
+            log.warn("Запись журнала типа {} пропущена: {}", type, e.getMessage());
+        } catch (EntityCodec.MalformedRecordException | BufferUnderflowException e) {
+            // Испорченная запись отбрасывается целиком: восстановление продолжается со следующей
+            log.error("Запись журнала типа {} не соответствует формату и пропущена: {}", type, e.toString());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Снимок состояния in-memory хранилищ: snapshot-N.bin, где N - первый сегмент журнала,
+ * который нужно применить поверх снимка. Заголовок [магическое число][версия][N],
+ * далее записи фильмов и пользователей в формате журнала (FILM_SAVED, USER_SAVED).
+ * Снимок пишется во временный файл и переименовывается атомарно, поэтому на диске
+ * всегда лежит либо прежний, либо полностью записанный новый снимок.
+ */
+@Slf4j
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x464D5253;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    // Накопленные записи сбрасываются в канал порциями такого размера
+    private static final int CHUNK_BYTES = 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    // Запись снимка; коллекции обходятся без блокировок, несогласованность исправляется журналом с firstSegment
+    static Path write(Path directory, long firstSegment, Collection<Film> films, Collection<User> users)
+            throws IOException {
+        Path target = path(directory, firstSegment);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryWriter out = new BinaryWriter(CHUNK_BYTES + CHUNK_BYTES / 4);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(firstSegment);
+            for (Film film : films) {
+                out.putRecord(WriteAheadLog.FILM_SAVED, writer -> EntityCodec.writeFilm(writer, film));
+                flushIfFull(out, channel);
+            }
+            for (User user : users) {
+                out.putRecord(WriteAheadLog.USER_SAVED, writer -> EntityCodec.writeUser(writer, user));
+                flushIfFull(out, channel);
+            }
+            out.writeTo(channel);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Переименование становится надежным только после сброса каталога: до этого удалять старые файлы нельзя
+        WriteAheadLog.syncDirectory(directory);
+        return target;
+    }
+
+    // Номер первого сегмента журнала после последнего снимка, если снимки есть
+    static OptionalLong latest(Path directory) throws IOException {
+        return snapshots(directory).stream().mapToLong(Long::longValue).max();
+    }
+
+    /**
+     * Чтение снимка через отображение файла в память: записи передаются обработчику без копирования файла
+     * в кучу. Размер снимка ограничен 2 ГБ - пределом одного MappedByteBuffer.
+     */
+    static void read(Path directory, long firstSegment, Consumer<ByteBuffer> handler) throws IOException {
+        Path source = path(directory, firstSegment);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок " + source + " больше 2 ГБ");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION
+                    || data.getLong() != firstSegment) {
+                throw new IOException("Файл " + source + " не является снимком хранилища");
+            }
+            int records = WriteAheadLog.readRecords(data, handler);
+            log.info("Из снимка {} восстановлено записей: {}", source.getFileName(), records);
+        }
+    }
+
+    // Удаление снимков, предшествующих снимку с указанным сегментом
+    static void deleteBefore(Path directory, long firstSegment) throws IOException {
+        for (long older : snapshots(directory)) {
+            if (older < firstSegment) {
+                Files.deleteIfExists(path(directory, older));
+            }
+        }
+    }
+
+    private static void flushIfFull(BinaryWriter out, FileChannel channel) throws IOException {
+        if (out.position() >= CHUNK_BYTES) {
+            out.writeTo(channel);
+            out.clear();
+        }
+    }
+
+    private static List<Long> snapshots(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> name.substring(PREFIX.length(), name.length() - SUFFIX.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .toList();
+        }
+    }
+
+    private static Path path(Path directory, long firstSegment) {
+        return directory.resolve(PREFIX + firstSegment + SUFFIX);
+    }
+}
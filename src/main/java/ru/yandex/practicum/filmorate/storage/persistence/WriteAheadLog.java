@@ -0,0 +1,335 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал упреждающей записи (WAL) изменений in-memory хранилищ.
+ * Журнал разбит на сегменты wal-N.log; при снимке начинается новый сегмент, а старые удаляются.
+ * Запись: [длина][CRC32C][тип][данные]. Оборванная или поврежденная запись в конце сегмента
+ * (например, после сбоя питания) при восстановлении отбрасывается вместе с остатком сегмента.
+ * Сброс на диск групповой: поток, первым дошедший до sync, пишет и сбрасывает все накопленные записи,
+ * остальные ждут его и проверяют, попали ли их записи в сброшенную пачку.
+ */
+@Slf4j
+public class WriteAheadLog implements Journal, Closeable {
+
+    static final byte FILM_SAVED = 1;
+    static final byte LIKE_ADDED = 2;
+    static final byte LIKE_REMOVED = 3;
+    static final byte USER_SAVED = 4;
+    static final byte FRIEND_ADDED = 5;
+    static final byte FRIEND_REMOVED = 6;
+    static final byte FRIENDSHIP_CONFIRMED = 7;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path directory;
+    // Выключение fsync ускоряет запись, но при сбое ОС теряются записи, не сброшенные из page cache
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    private BinaryWriter pending = new BinaryWriter(BUFFER_BYTES);
+    private BinaryWriter spare = new BinaryWriter(BUFFER_BYTES);
+    private FileChannel channel;
+    private long segment;
+    // Позиция - порядковый номер записи с момента открытия журнала
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    // Первая ошибка записи на диск; после неё журнал закрыт для изменений до перезапуска
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory, long segment, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+    }
+
+    // Открытие журнала с записью в новый сегмент с указанным номером
+    public static WriteAheadLog open(Path directory, long segment, boolean fsync) throws IOException {
+        Files.createDirectories(directory);
+        return new WriteAheadLog(directory, segment, fsync);
+    }
+
+    @Override
+    public long filmSaved(Film film) {
+        return append(FILM_SAVED, out -> EntityCodec.writeFilm(out, film));
+    }
+
+    @Override
+    public long likeAdded(long filmId, long userId) {
+        return append(LIKE_ADDED, out -> writePair(out, filmId, userId));
+    }
+
+    @Override
+    public long likeRemoved(long filmId, long userId) {
+        return append(LIKE_REMOVED, out -> writePair(out, filmId, userId));
+    }
+
+    @Override
+    public long userSaved(User user) {
+        return append(USER_SAVED, out -> EntityCodec.writeUser(out, user));
+    }
+
+    @Override
+    public long friendAdded(long userId, long friendId) {
+        return append(FRIEND_ADDED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public long friendRemoved(long userId, long friendId) {
+        return append(FRIEND_REMOVED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public long friendshipConfirmed(long userId, long friendId) {
+        return append(FRIENDSHIP_CONFIRMED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public void checkWritable() {
+        IOException error = failure;
+        if (error != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен для записи", error);
+        }
+    }
+
+    // Ошибка, после которой журнал перестал принимать записи, или null
+    public IOException failure() {
+        return failure;
+    }
+
+    @Override
+    public void sync(long position) {
+        lock.lock();
+        try {
+            while (durable < position) {
+                checkWritable();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Переход на новый сегмент: все накопленные записи сбрасываются в текущий сегмент,
+     * последующие пишутся в следующий. Возвращает номер нового сегмента.
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durable < appended) {
+                flushBatch();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.force(true);
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            log.debug("Журнал изменений переключен на сегмент {}", segment);
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаление сегментов, полностью вошедших в снимок
+    public void deleteSegmentsBefore(long firstKept) throws IOException {
+        for (long oldSegment : segments(directory)) {
+            if (oldSegment < firstKept) {
+                Files.deleteIfExists(segmentPath(directory, oldSegment));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync(appendedPosition());
+        } finally {
+            lock.lock();
+            try {
+                // Канал закрывается и после сбоя записи, сбрасывать в этом случае нечего
+                if (failure == null) {
+                    channel.force(true);
+                }
+                channel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Чтение записей всех сегментов начиная с fromSegment. Сегменты отображаются в память,
+     * каждая запись передается обработчику как буфер, начинающийся с байта типа.
+     * Возвращает номер последнего найденного сегмента (или fromSegment - 1, если их нет).
+     */
+    public static long replay(Path directory, long fromSegment, Consumer<ByteBuffer> handler) throws IOException {
+        long lastSegment = fromSegment - 1;
+        for (long segment : segments(directory)) {
+            if (segment < fromSegment) {
+                continue;
+            }
+            lastSegment = segment;
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, segment), StandardOpenOption.READ)) {
+                if (channel.size() == 0) {
+                    continue;
+                }
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int records = readRecords(data, handler);
+                log.info("Из сегмента журнала {} восстановлено записей: {}", segment, records);
+            }
+        }
+        return lastSegment;
+    }
+
+    // Номера существующих сегментов по возрастанию
+    static List<Long> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Чтение записей из буфера до конца или до первой оборванной/поврежденной записи, возвращает их количество
+    static int readRecords(ByteBuffer data, Consumer<ByteBuffer> handler) {
+        int records = 0;
+        while (data.remaining() >= BinaryWriter.RECORD_HEADER_BYTES) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                log.warn("Оборванная запись на позиции {}, остаток файла пропущен", start);
+                return records;
+            }
+            ByteBuffer record = data.slice(data.position(), length);
+            CRC32C crc = new CRC32C();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Поврежденная запись на позиции {}, остаток файла пропущен", start);
+                return records;
+            }
+            handler.accept(record);
+            data.position(data.position() + length);
+            records++;
+        }
+        return records;
+    }
+
+    private long append(byte type, Consumer<BinaryWriter> payload) {
+        lock.lock();
+        try {
+            pending.putRecord(type, payload);
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой; на время записи на диск блокировка отпускается, новые записи копятся в другом буфере
+    private void flushBatch() {
+        flushing = true;
+        BinaryWriter batch = pending;
+        pending = spare;
+        long batchEnd = appended;
+        FileChannel target = channel;
+        lock.unlock();
+        IOException error = null;
+        try {
+            batch.writeTo(target);
+            if (fsync) {
+                target.force(false);
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+        }
+        batch.clear();
+        spare = batch;
+        flushing = false;
+        if (error != null) {
+            log.error("Не удалось записать журнал изменений", error);
+            failure = error;
+        } else {
+            durable = batchEnd;
+        }
+        flushed.signalAll();
+    }
+
+    private long appendedPosition() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Новый сегмент создается вместе со сбросом каталога, иначе после сбоя ОС файл может пропасть целиком
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (fsync) {
+            syncDirectory(directory);
+        }
+        return segmentChannel;
+    }
+
+    // Сброс на диск записей каталога: создания, переименования и удаления файлов в нем
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static void writePair(BinaryWriter out, long first, long second) {
+        out.putLong(first);
+        out.putLong(second);
+    }
+}
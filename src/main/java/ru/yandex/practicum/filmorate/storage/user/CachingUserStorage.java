@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EntityCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Кэш пользователей по id поверх хранилища в БД.
+ * Вес пользователя растёт с количеством дружеских связей, при превышении общего веса
+ * вытесняются редко используемые записи. Изменение дружбы сбрасывает записи обоих пользователей.
+ */
+@Primary
+@Component
+@Profile("jdbc")
+public class CachingUserStorage implements UserStorage, MeterBinder {
+
+    private final UserStorage delegate;
+    private final EntityCache<User> cache;
+
+    @Autowired
+    public CachingUserStorage(JdbcUserStorage delegate,
+                              @Value("${filmorate.cache.users.maximum-weight:1000000}") long maximumWeight) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maximumWeight, (Long id, User user) -> 1 + user.getFriendship().size());
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        return delegate.findPage(after, limit);
+    }
+
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+        cache.put(created.getIdUser(), created);
+        return created;
+    }
+
+    @Override
+    public User update(User newUser) {
+        try {
+            return delegate.update(newUser);
+        } finally {
+            cache.invalidate(newUser.getIdUser());
+        }
+    }
+
+    @Override
+    public Optional<User> getUser(Long id) {
+        // Параллельные промахи по одному id приводят к одному запросу в БД
+        return Optional.ofNullable(cache.get(id, key -> delegate.getUser(key).orElse(null)));
+    }
+
+    @Override
+    public boolean addFriend(Long id, Long friendId) {
+        try {
+            return delegate.addFriend(id, friendId);
+        } finally {
+            cache.invalidateAll(List.of(id, friendId));
+        }
+    }
+
+    @Override
+    public List<BatchResult> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return delegate.findExistingIds(ids);
+    }
+
+    @Override
+    public List<FriendRequest> addFriends(Collection<FriendRequest> requests) {
+        try {
+            return delegate.addFriends(requests);
+        } finally {
+            cache.invalidateAll(requests.stream()
+                    .flatMap(request -> Stream.of(request.getUserId(), request.getFriendId()))
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    @Override
+    public boolean removeFriend(Long id, Long friendId) {
+        try {
+            return delegate.removeFriend(id, friendId);
+        } finally {
+            cache.invalidateAll(List.of(id, friendId));
+        }
+    }
+
+    @Override
+    public boolean confirmFriendship(Long id, Long friendId) {
+        try {
+            return delegate.confirmFriendship(id, friendId);
+        } finally {
+            cache.invalidateAll(List.of(id, friendId));
+        }
+    }
+
+    @Override
+    public long[] getConfirmedFriendIds(Long id) {
+        return delegate.getConfirmedFriendIds(id);
+    }
+
+    @Override
+    public List<User> findFriends(Long id) {
+        return delegate.findFriends(id);
+    }
+
+    @Override
+    public List<User> findCommonFriends(Long id, Long otherId) {
+        return delegate.findCommonFriends(id, otherId);
+    }
+
+    @Override
+    public List<User> findFriendSuggestions(Long id, int count) {
+        return delegate.findFriendSuggestions(id, count);
+    }
+
+    // Статистика попаданий и промахов кэша
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry, "users");
+    }
+}
@@ -1,52 +1,419 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdSequence;
+import ru.yandex.practicum.filmorate.storage.PersistentLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLock;
+import ru.yandex.practicum.filmorate.storage.edge.FriendSuggestions;
+import ru.yandex.practicum.filmorate.storage.edge.PackedFriendshipMap;
+import ru.yandex.practicum.filmorate.storage.persistence.Journal;
+import ru.yandex.practicum.filmorate.storage.edge.SortedLongArrays;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
+@Profile("!jdbc")
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Long, User> users = new HashMap<>();
+    // Позиция вместо записи в журнал, когда операция ничего не изменила; sync по ней не ждёт
+    private static final long UNCHANGED = -1;
+    // Метка email, занятого создаваемым пользователем до выдачи ему id (id начинаются с 1)
+    private static final Long EMAIL_CLAIMED = 0L;
+
+    // Текущая версия коллекции, как в InMemoryFilmStorage: дружеские связи меняются внутри пользователя
+    private final AtomicReference<PersistentLongMap<User>> users = new AtomicReference<>(PersistentLongMap.empty());
+    private final IdSequence ids = new IdSequence();
+    private final StripedLock locks = new StripedLock();
+    // Индекс email (в нормализованном виде) -> id владельца
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    // Хранить дружеские связи в упакованном виде (id и статус в одном long) вместо карты
+    private final boolean compactEdges;
+    // Журнал изменений подключается после восстановления состояния с диска, если хранение на диске включено
+    private volatile Journal journal = Journal.NONE;
+
+    public InMemoryUserStorage() {
+        this(true);
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Value("${filmorate.storage.compact-edges:true}") boolean compactEdges) {
+        this.compactEdges = compactEdges;
+    }
 
     @Override
     public Collection<User> findAll() {
-        log.info("Получаем полный список пользователей содержащихся в коллекции");
-        return users.values();
+        log.debug("Получаем полный список пользователей содержащихся в коллекции");
+        return users.get().values();
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получаем до {} пользователей с id больше {}", limit, after);
+        }
+        PersistentLongMap<User> snapshot = users.get();
+        List<User> page = new ArrayList<>(Math.min(limit, snapshot.size()));
+        Iterator<User> iterator = snapshot.valuesAfter(after);
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
     }
 
     @Override
     public User create(User user) {
         log.debug("Сохраняем пользователя в коллекцию");
-        users.put(user.getIdUser(), user);
+        initFriendship(user);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        // Id выдается только после того, как email занят: отклоненное создание не оставляет пропуск в нумерации
+        String emailKey = claimEmail(user.getEmail());
+        log.trace("Присваиваем пользователю уникальный id");
+        user.setIdUser(ids.next());
+        emails.put(emailKey, user.getIdUser());
+        journal.sync(store(user, journal));
         log.info("Пользователь успешно добавлени с id: {}", user.getIdUser());
         return user;
     }
 
+    @Override
+    public List<BatchResult> createAll(List<User> newUsers) {
+        log.debug("Пакетно сохраняем {} пользователей в коллекцию", newUsers.size());
+        if (newUsers.isEmpty()) {
+            return List.of();
+        }
+        Journal journal = this.journal;
+        journal.checkWritable();
+        BatchResult[] results = new BatchResult[newUsers.size()];
+        List<Integer> accepted = new ArrayList<>(newUsers.size());
+        List<String> acceptedEmails = new ArrayList<>(newUsers.size());
+        for (int i = 0; i < newUsers.size(); i++) {
+            try {
+                acceptedEmails.add(claimEmail(newUsers.get(i).getEmail()));
+                accepted.add(i);
+            } catch (ValidationException e) {
+                results[i] = BatchResult.failure(i, e.getMessage());
+            }
+        }
+        // Id резервируются только для пользователей, чьи email удалось занять
+        long position = UNCHANGED;
+        if (!accepted.isEmpty()) {
+            long firstId = ids.reserve(accepted.size());
+            for (int j = 0; j < accepted.size(); j++) {
+                int index = accepted.get(j);
+                User user = newUsers.get(index);
+                user.setIdUser(firstId + j);
+                initFriendship(user);
+                emails.put(acceptedEmails.get(j), user.getIdUser());
+                position = store(user, journal);
+                results[index] = BatchResult.success(index, user.getIdUser());
+            }
+        }
+        journal.sync(position);
+        log.info("Пакетно обработано {} пользователей, добавлено {}", newUsers.size(), accepted.size());
+        return Arrays.asList(results);
+    }
+
     @Override
     public User update(User newUser) {
         log.info("Обновляем данные о пользователя с id {}.", newUser.getIdUser());
         log.trace("Проверка наличия в коллекции пользователя с id указанным в теле метода PUT");
-        if (users.containsKey(newUser.getIdUser())) {
-            users.put(newUser.getIdUser(), newUser);
-            log.info("Данные о пользователе {} обновлены", newUser);
-            return newUser;
+        initFriendship(newUser);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position;
+        locks.lock(newUser.getIdUser());
+        try {
+            User oldUser = getExistingUser(newUser.getIdUser());
+            reserveEmail(newUser.getEmail(), newUser.getIdUser());
+            publish(newUser);
+            releaseEmail(oldUser.getEmail(), newUser.getEmail(), newUser.getIdUser());
+            position = journal.userSaved(newUser);
+        } finally {
+            locks.unlock(newUser.getIdUser());
         }
-        log.warn("Пользователь с id = {} не найден", newUser.getIdUser());
-        throw new NotFoundException("Пользователь с id = " + newUser.getIdUser() + " не найден");
+        journal.sync(position);
+        log.info("Данные о пользователе {} обновлены", newUser);
+        return newUser;
+    }
+
+    /**
+     * Восстановление пользователя с его id из снимка или журнала, без записи в журнал.
+     * Email закрепляется без проверки: снимок пишется без блокировок и может временно содержать
+     * один email у двух пользователей, последующие записи журнала это исправляют.
+     */
+    public void restore(User user) {
+        initFriendship(user);
+        ids.advanceTo(user.getIdUser());
+        locks.lock(user.getIdUser());
+        try {
+            User oldUser = users.get().get(user.getIdUser());
+            publish(user);
+            emails.put(normalizeEmail(user.getEmail()), user.getIdUser());
+            if (oldUser != null) {
+                releaseEmail(oldUser.getEmail(), user.getEmail(), user.getIdUser());
+            }
+        } finally {
+            locks.unlock(user.getIdUser());
+        }
+    }
+
+    // Подключение журнала изменений: дальнейшие изменения будут записываться в него
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
     }
 
     @Override
     public Optional<User> getUser(Long id) {
-        log.info("Вывод пользователя с id {}.", id);
-        return Optional.ofNullable(users.get(id));
+        log.debug("Вывод пользователя с id {}.", id);
+        return Optional.ofNullable(users.get().get(id));
+    }
+
+    @Override
+    public boolean addFriend(Long id, Long friendId) {
+        log.debug("Пользователь с id {} отправляет запрос в друзья пользователю с id {}", id, friendId);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = addFriend(id, friendId, journal);
+        journal.sync(position);
+        return position != UNCHANGED;
+    }
+
+    // Запрос в друзья без ожидания журнала, возвращает позицию записи в журнале или UNCHANGED
+    private long addFriend(Long id, Long friendId, Journal journal) {
+        locks.lock(id, friendId);
+        try {
+            FriendshipStatus previous = getExistingUser(id).getFriendship().put(friendId, FriendshipStatus.PENDING);
+            FriendshipStatus reverse = getExistingUser(friendId).getFriendship().put(id, FriendshipStatus.PENDING);
+            if (previous == FriendshipStatus.PENDING && reverse == FriendshipStatus.PENDING) {
+                return UNCHANGED;
+            }
+            return journal.friendAdded(id, friendId);
+        } finally {
+            locks.unlock(id, friendId);
+        }
+    }
+
+    @Override
+    public List<FriendRequest> addFriends(Collection<FriendRequest> requests) {
+        log.debug("Пакетно отправляем {} запросов в друзья", requests.size());
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        List<FriendRequest> changed = new ArrayList<>(requests.size());
+        for (FriendRequest request : requests) {
+            long appended = addFriend(request.getUserId(), request.getFriendId(), journal);
+            if (appended != UNCHANGED) {
+                position = appended;
+                changed.add(request);
+            }
+        }
+        journal.sync(position);
+        return changed;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        PersistentLongMap<User> snapshot = users.get();
+        return userIds.stream()
+                .filter(snapshot::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean removeFriend(Long id, Long friendId) {
+        log.debug("Удаляем из друзей пользователей с id {} и {}", id, friendId);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        locks.lock(id, friendId);
+        try {
+            FriendshipStatus removed = getExistingUser(id).getFriendship().remove(friendId);
+            FriendshipStatus reverse = getExistingUser(friendId).getFriendship().remove(id);
+            if (removed != null || reverse != null) {
+                position = journal.friendRemoved(id, friendId);
+            }
+        } finally {
+            locks.unlock(id, friendId);
+        }
+        journal.sync(position);
+        return position != UNCHANGED;
+    }
+
+    @Override
+    public boolean confirmFriendship(Long id, Long friendId) {
+        log.debug("Подтверждаем дружбу пользователей с id {} и {}", id, friendId);
+        Journal journal = this.journal;
+        journal.checkWritable();
+        long position = UNCHANGED;
+        locks.lock(id, friendId);
+        try {
+            User user = getExistingUser(id);
+            User friend = getExistingUser(friendId);
+            if (user.getFriendship().containsKey(friendId) && friend.getFriendship().containsKey(id)) {
+                FriendshipStatus previous = user.getFriendship().put(friendId, FriendshipStatus.CONFIRMED);
+                FriendshipStatus reverse = friend.getFriendship().put(id, FriendshipStatus.CONFIRMED);
+                if (previous != FriendshipStatus.CONFIRMED || reverse != FriendshipStatus.CONFIRMED) {
+                    position = journal.friendshipConfirmed(id, friendId);
+                }
+            }
+        } finally {
+            locks.unlock(id, friendId);
+        }
+        journal.sync(position);
+        return position != UNCHANGED;
+    }
+
+    @Override
+    public long[] getConfirmedFriendIds(Long id) {
+        return confirmedFriendIds(getExistingUser(id));
+    }
+
+    private long[] confirmedFriendIds(User user) {
+        Map<Long, FriendshipStatus> friendship = user.getFriendship();
+        if (friendship instanceof PackedFriendshipMap packed) {
+            return packed.confirmedIds();
+        }
+        return friendship.entrySet().stream()
+                .filter(entry -> entry.getValue() == FriendshipStatus.CONFIRMED)
+                .mapToLong(Map.Entry::getKey)
+                .sorted()
+                .toArray();
+    }
+
+    @Override
+    public List<User> findFriends(Long id) {
+        log.debug("Вывод друзей пользователя с id {}", id);
+        return hydrate(getConfirmedFriendIds(id));
+    }
+
+    @Override
+    public List<User> findCommonFriends(Long id, Long otherId) {
+        log.debug("Вывод общих друзей пользователей с id {} и {}", id, otherId);
+        log.trace("Пересекаем отсортированные списки id друзей");
+        return hydrate(SortedLongArrays.intersect(getConfirmedFriendIds(id), getConfirmedFriendIds(otherId)));
+    }
+
+    @Override
+    public List<User> findFriendSuggestions(Long id, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Подбор {} возможных друзей для пользователя с id {}", count, id);
+        }
+        User user = getExistingUser(id);
+        Map<Long, FriendshipStatus> friendship = user.getFriendship();
+        PersistentLongMap<User> snapshot = users.get();
+        return hydrate(FriendSuggestions.rank(confirmedFriendIds(user),
+                friendId -> {
+                    User friend = snapshot.get(friendId);
+                    return friend == null ? new long[0] : confirmedFriendIds(friend);
+                },
+                candidateId -> candidateId == id || friendship.containsKey(candidateId),
+                count));
+    }
+
+    // Сохранение нового пользователя с закреплением email, возвращает позицию записи в журнале
+    private long store(User user, Journal journal) {
+        locks.lock(user.getIdUser());
+        try {
+            reserveEmail(user.getEmail(), user.getIdUser());
+            publish(user);
+            return journal.userSaved(user);
+        } finally {
+            locks.unlock(user.getIdUser());
+        }
+    }
+
+    // Загрузка пользователей по списку id
+    private List<User> hydrate(long[] ids) {
+        PersistentLongMap<User> snapshot = users.get();
+        List<User> result = new ArrayList<>(ids.length);
+        for (long userId : ids) {
+            User user = snapshot.get(userId);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    // Публикация версии коллекции с новым или замененным пользователем
+    private void publish(User user) {
+        users.updateAndGet(snapshot -> snapshot.with(user.getIdUser(), user));
+    }
+
+    private User getExistingUser(Long id) {
+        User user = users.get().get(id);
+        if (user == null) {
+            log.warn("Пользователь с id = {} не найден", id);
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return user;
+    }
+
+    // Друзья хранятся в потокобезопасной карте, независимо от того, что пришло в теле запроса
+    private void initFriendship(User user) {
+        Map<Long, FriendshipStatus> source = user.getFriendship() != null ? user.getFriendship() : Map.of();
+        if (compactEdges) {
+            user.setFriendship(new PackedFriendshipMap(source));
+        } else {
+            user.setFriendship(new ConcurrentHashMap<>(source));
+        }
+    }
+
+    // Атомарное закрепление email за пользователем
+    /**
+     * Занятие email нового пользователя до выдачи ему id: ключ помечается EMAIL_CLAIMED,
+     * после выдачи id значение заменяется на него. Возвращает нормализованный email.
+     */
+    private String claimEmail(String email) {
+        String key = normalizeEmail(email);
+        if (emails.putIfAbsent(key, EMAIL_CLAIMED) != null) {
+            log.warn("Email {} используется другим пользователем", email);
+            throw new ValidationException("Этот имейл уже используется");
+        }
+        return key;
+    }
+
+    private void reserveEmail(String email, Long userId) {
+        log.trace("Проверка email {} на принадлежность другому пользователю", email);
+        Long ownerId = emails.putIfAbsent(normalizeEmail(email), userId);
+        if (ownerId != null && !ownerId.equals(userId)) {
+            log.warn("Email {} используется другим пользователем", email);
+            throw new ValidationException("Этот имейл уже используется");
+        }
+    }
+
+    // Освобождение прежнего email после его смены
+    private void releaseEmail(String oldEmail, String newEmail, Long userId) {
+        String oldKey = normalizeEmail(oldEmail);
+        if (!oldKey.equals(normalizeEmail(newEmail))) {
+            emails.remove(oldKey, userId);
+        }
+    }
+
+    private String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
     }
 }
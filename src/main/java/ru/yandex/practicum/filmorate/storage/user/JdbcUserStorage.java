@@ -0,0 +1,387 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdSequence;
+import ru.yandex.practicum.filmorate.storage.InListChunks;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Slf4j
+@Component
+@Profile("jdbc")
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT u.user_id, u.email, u.login, u.name, u.birthday FROM users u ";
+    // Сколько пользователей пакета вставляется одним batchUpdate; при конфликте email часть повторяется по одному
+    private static final int INSERT_CHUNK_SIZE = 500;
+    // Связь в статусе ожидания: вставляется, если её нет, и переводится в ожидание, если статус был другим.
+    // Уже ожидающая связь не затрагивается, поэтому число изменённых строк показывает, изменилось ли что-то
+    private static final String MERGE_PENDING_EDGE = "MERGE INTO friendships f "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS e (user_id, friend_id) "
+            + "ON f.user_id = e.user_id AND f.friend_id = e.friend_id "
+            + "WHEN MATCHED AND f.status <> 'PENDING' THEN UPDATE SET status = 'PENDING' "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, friend_id, status) VALUES (e.user_id, e.friend_id, 'PENDING')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final IdSequence ids;
+    // Вложенная транзакция (точка сохранения): неудачная часть пакета откатывается, не затрагивая остальные
+    private final TransactionTemplate savepoint;
+
+    @Autowired
+    public JdbcUserStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                           PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.ids = new IdSequence(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) FROM users",
+                Long.class));
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        log.debug("Получаем полный список пользователей из базы данных");
+        return withFriendship(jdbcTemplate.query(SELECT_USERS + "ORDER BY u.user_id", this::mapUser));
+    }
+
+    @Override
+    public List<User> findPage(long after, int limit) {
+        if (log.isDebugEnabled()) {
+            log.debug("Получаем до {} пользователей с id больше {}", limit, after);
+        }
+        return withFriendship(jdbcTemplate.query(SELECT_USERS + "WHERE u.user_id > ? ORDER BY u.user_id LIMIT ?",
+                this::mapUser, after, limit));
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        log.debug("Сохраняем пользователя в базу данных");
+        // Занятый email отсекается до выдачи id; id теряется только при гонке с параллельной регистрацией
+        Integer taken = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email_key = ?", Integer.class,
+                normalizeEmail(user.getEmail()));
+        if (taken != null && taken > 0) {
+            log.warn("Email {} используется другим пользователем", user.getEmail());
+            throw new ValidationException("Этот имейл уже используется");
+        }
+        user.setIdUser(ids.next());
+        try {
+            jdbcTemplate.update("INSERT INTO users (user_id, email, email_key, login, name, birthday) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)",
+                    user.getIdUser(), user.getEmail(), normalizeEmail(user.getEmail()), user.getLogin(),
+                    user.getName(), Date.valueOf(user.getBirthday()));
+        } catch (DuplicateKeyException e) {
+            log.warn("Email {} используется другим пользователем", user.getEmail());
+            throw new ValidationException("Этот имейл уже используется");
+        }
+        saveFriendships(List.of(user));
+        log.info("Пользователь успешно добавлени с id: {}", user.getIdUser());
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchResult> createAll(List<User> newUsers) {
+        log.debug("Пакетно сохраняем {} пользователей в базу данных", newUsers.size());
+        if (newUsers.isEmpty()) {
+            return List.of();
+        }
+        Set<String> takenEmails = new HashSet<>();
+        InListChunks.forEach(newUsers.stream().map(user -> normalizeEmail(user.getEmail())).toList(),
+                keys -> takenEmails.addAll(namedJdbcTemplate.queryForList(
+                        "SELECT email_key FROM users WHERE email_key IN (:keys)", Map.of("keys", keys), String.class)));
+        BatchResult[] results = new BatchResult[newUsers.size()];
+        List<User> accepted = new ArrayList<>(newUsers.size());
+        List<Integer> acceptedIndexes = new ArrayList<>(newUsers.size());
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (takenEmails.add(normalizeEmail(user.getEmail()))) {
+                accepted.add(user);
+                acceptedIndexes.add(i);
+            } else {
+                log.warn("Email {} используется другим пользователем", user.getEmail());
+                results[i] = BatchResult.failure(i, "Этот имейл уже используется");
+            }
+        }
+        if (accepted.isEmpty()) {
+            return Arrays.asList(results);
+        }
+        // Id резервируются только для пользователей, прошедших проверку email
+        long firstId = ids.reserve(accepted.size());
+        for (int j = 0; j < accepted.size(); j++) {
+            User user = accepted.get(j);
+            user.setIdUser(firstId + j);
+            results[acceptedIndexes.get(j)] = BatchResult.success(acceptedIndexes.get(j), user.getIdUser());
+        }
+        List<User> saved = new ArrayList<>(accepted.size());
+        for (int from = 0; from < accepted.size(); from += INSERT_CHUNK_SIZE) {
+            List<User> chunk = accepted.subList(from, Math.min(from + INSERT_CHUNK_SIZE, accepted.size()));
+            try {
+                savepoint.executeWithoutResult(status -> insertUsers(chunk));
+                saved.addAll(chunk);
+            } catch (DuplicateKeyException e) {
+                // Email занят параллельной регистрацией: часть откатилась целиком, повторяем её по одному
+                log.warn("Один из email пакета занят параллельной регистрацией, пользователи сохраняются по одному");
+                for (User user : chunk) {
+                    int index = acceptedIndexes.get((int) (user.getIdUser() - firstId));
+                    try {
+                        savepoint.executeWithoutResult(status -> insertUsers(List.of(user)));
+                        saved.add(user);
+                    } catch (DuplicateKeyException duplicate) {
+                        log.warn("Email {} используется другим пользователем", user.getEmail());
+                        results[index] = BatchResult.failure(index, "Этот имейл уже используется");
+                    }
+                }
+            }
+        }
+        saveFriendships(saved);
+        log.info("Пакетно обработано {} пользователей с id от {}", newUsers.size(), firstId);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional
+    public User update(User newUser) {
+        log.info("Обновляем данные о пользователя с id {}.", newUser.getIdUser());
+        int updated;
+        try {
+            updated = jdbcTemplate.update("UPDATE users SET email = ?, email_key = ?, login = ?, name = ?, "
+                            + "birthday = ? WHERE user_id = ?",
+                    newUser.getEmail(), normalizeEmail(newUser.getEmail()), newUser.getLogin(), newUser.getName(),
+                    Date.valueOf(newUser.getBirthday()), newUser.getIdUser());
+        } catch (DuplicateKeyException e) {
+            log.warn("Email {} используется другим пользователем", newUser.getEmail());
+            throw new ValidationException("Этот имейл уже используется");
+        }
+        if (updated == 0) {
+            log.warn("Пользователь с id = {} не найден", newUser.getIdUser());
+            throw new NotFoundException("Пользователь с id = " + newUser.getIdUser() + " не найден");
+        }
+        jdbcTemplate.update("DELETE FROM friendships WHERE user_id = ?", newUser.getIdUser());
+        saveFriendships(List.of(newUser));
+        log.info("Данные о пользователе с id {} обновлены", newUser.getIdUser());
+        return newUser;
+    }
+
+    @Override
+    public Optional<User> getUser(Long id) {
+        log.debug("Вывод пользователя с id {}.", id);
+        return withFriendship(jdbcTemplate.query(SELECT_USERS + "WHERE u.user_id = ?", this::mapUser, id))
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    @Transactional
+    public boolean addFriend(Long id, Long friendId) {
+        log.debug("Пользователь с id {} отправляет запрос в друзья пользователю с id {}", id, friendId);
+        checkUserExists(id);
+        checkUserExists(friendId);
+        int[] counts = jdbcTemplate.batchUpdate(MERGE_PENDING_EDGE, List.of(new Object[]{id, friendId},
+                new Object[]{friendId, id}));
+        return counts[0] != 0 || counts[1] != 0;
+    }
+
+    @Override
+    @Transactional
+    public List<FriendRequest> addFriends(Collection<FriendRequest> requests) {
+        log.debug("Пакетно отправляем {} запросов в друзья", requests.size());
+        List<FriendRequest> ordered = new ArrayList<>(requests);
+        List<Object[]> edges = new ArrayList<>(ordered.size() * 2);
+        for (FriendRequest request : ordered) {
+            edges.add(new Object[]{request.getUserId(), request.getFriendId()});
+            edges.add(new Object[]{request.getFriendId(), request.getUserId()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(MERGE_PENDING_EDGE, edges);
+        List<FriendRequest> changed = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            if (counts[2 * i] != 0 || counts[2 * i + 1] != 0) {
+                changed.add(ordered.get(i));
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> existing = new HashSet<>();
+        InListChunks.forEach(userIds, chunk -> existing.addAll(namedJdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE user_id IN (:ids)", Map.of("ids", chunk), Long.class)));
+        return existing;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriend(Long id, Long friendId) {
+        log.debug("Удаляем из друзей пользователей с id {} и {}", id, friendId);
+        checkUserExists(id);
+        checkUserExists(friendId);
+        return jdbcTemplate.update("DELETE FROM friendships WHERE (user_id = ? AND friend_id = ?) "
+                + "OR (user_id = ? AND friend_id = ?)", id, friendId, friendId, id) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean confirmFriendship(Long id, Long friendId) {
+        log.debug("Подтверждаем дружбу пользователей с id {} и {}", id, friendId);
+        checkUserExists(id);
+        checkUserExists(friendId);
+        return jdbcTemplate.update("UPDATE friendships SET status = ? "
+                        + "WHERE ((user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)) "
+                        + "AND status <> ? "
+                        + "AND (SELECT COUNT(*) FROM friendships "
+                        + "WHERE (user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)) = 2",
+                FriendshipStatus.CONFIRMED.name(), id, friendId, friendId, id, FriendshipStatus.CONFIRMED.name(),
+                id, friendId, friendId, id) > 0;
+    }
+
+    @Override
+    public long[] getConfirmedFriendIds(Long id) {
+        checkUserExists(id);
+        return jdbcTemplate.queryForList("SELECT friend_id FROM friendships WHERE user_id = ? AND status = ? "
+                        + "ORDER BY friend_id", Long.class, id, FriendshipStatus.CONFIRMED.name())
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @Override
+    public List<User> findFriends(Long id) {
+        log.debug("Вывод друзей пользователя с id {}", id);
+        checkUserExists(id);
+        return withFriendship(jdbcTemplate.query(SELECT_USERS
+                        + "JOIN friendships f ON f.friend_id = u.user_id AND f.user_id = ? AND f.status = ? "
+                        + "ORDER BY u.user_id",
+                this::mapUser, id, FriendshipStatus.CONFIRMED.name()));
+    }
+
+    @Override
+    public List<User> findCommonFriends(Long id, Long otherId) {
+        log.debug("Вывод общих друзей пользователей с id {} и {}", id, otherId);
+        checkUserExists(id);
+        checkUserExists(otherId);
+        return withFriendship(jdbcTemplate.query(SELECT_USERS
+                        + "JOIN friendships f1 ON f1.friend_id = u.user_id AND f1.user_id = ? AND f1.status = ? "
+                        + "JOIN friendships f2 ON f2.friend_id = u.user_id AND f2.user_id = ? AND f2.status = ? "
+                        + "ORDER BY u.user_id",
+                this::mapUser, id, FriendshipStatus.CONFIRMED.name(), otherId, FriendshipStatus.CONFIRMED.name()));
+    }
+
+    @Override
+    public List<User> findFriendSuggestions(Long id, int count) {
+        if (log.isDebugEnabled()) {
+            log.debug("Подбор {} возможных друзей для пользователя с id {}", count, id);
+        }
+        checkUserExists(id);
+        String confirmed = FriendshipStatus.CONFIRMED.name();
+        return withFriendship(jdbcTemplate.query(SELECT_USERS
+                        + "JOIN (SELECT f2.friend_id AS candidate_id, COUNT(*) AS mutual FROM friendships f1 "
+                        + "JOIN friendships f2 ON f2.user_id = f1.friend_id AND f2.status = ? "
+                        + "WHERE f1.user_id = ? AND f1.status = ? AND f2.friend_id <> f1.user_id "
+                        + "AND NOT EXISTS (SELECT 1 FROM friendships f3 "
+                        + "WHERE f3.user_id = f1.user_id AND f3.friend_id = f2.friend_id) "
+                        + "GROUP BY f2.friend_id ORDER BY mutual DESC, candidate_id LIMIT ?) s "
+                        + "ON s.candidate_id = u.user_id "
+                        + "ORDER BY s.mutual DESC, u.user_id",
+                this::mapUser, confirmed, id, confirmed, count));
+    }
+
+    private void checkUserExists(Long id) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE user_id = ?", Integer.class, id);
+        if (count == null || count == 0) {
+            log.warn("Пользователь с id = {} не найден", id);
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+    }
+
+    private void insertUsers(List<User> users) {
+        jdbcTemplate.batchUpdate("INSERT INTO users (user_id, email, email_key, login, name, birthday) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", users, users.size(), (ps, user) -> {
+                    ps.setLong(1, user.getIdUser());
+                    ps.setString(2, user.getEmail());
+                    ps.setString(3, normalizeEmail(user.getEmail()));
+                    ps.setString(4, user.getLogin());
+                    ps.setString(5, user.getName());
+                    ps.setDate(6, Date.valueOf(user.getBirthday()));
+                });
+    }
+
+    // Дружеские связи всех переданных пользователей сохраняются одним batchUpdate
+    private void saveFriendships(List<User> users) {
+        List<Object[]> edges = new ArrayList<>();
+        for (User user : users) {
+            if (user.getFriendship() != null) {
+                user.getFriendship().forEach((friendId, status) ->
+                        edges.add(new Object[]{user.getIdUser(), friendId, status.name()}));
+            }
+        }
+        if (edges.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate("INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, ?)", edges);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Списки друзей пользователей содержат незарегистрированных пользователей");
+            throw new ValidationException("В друзьях могут быть только зарегистрированные пользователи");
+        }
+    }
+
+    // Загрузка дружеских связей для списка пользователей одним запросом на каждые InListChunks.LIMIT пользователей
+    private List<User> withFriendship(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> byId = new LinkedHashMap<>();
+        users.forEach(user -> byId.put(user.getIdUser(), user));
+        InListChunks.forEach(byId.keySet(), ids -> namedJdbcTemplate.query(
+                "SELECT user_id, friend_id, status FROM friendships WHERE user_id IN (:ids)", Map.of("ids", ids), rs -> {
+                    byId.get(rs.getLong("user_id")).getFriendship()
+                            .put(rs.getLong("friend_id"), FriendshipStatus.valueOf(rs.getString("status")));
+                }));
+        return users;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User(rs.getString("email"), rs.getString("login"), rs.getDate("birthday").toLocalDate());
+        user.setIdUser(rs.getLong("user_id"));
+        user.setName(rs.getString("name"));
+        return user;
+    }
+
+    private String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
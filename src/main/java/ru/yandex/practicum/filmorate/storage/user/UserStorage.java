@@ -1,15 +1,22 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.FriendRequest;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserStorage {
 
     // Вывод всех пользователей содержащихся в коллекции
     Collection<User> findAll();
 
+    // Вывод не более limit пользователей с id больше after в порядке возрастания id
+    List<User> findPage(long after, int limit);
+
     // Добавление нового пользователя в коллекцию
     User create(User user);
 
@@ -18,4 +25,37 @@ public interface UserStorage {
 
     // Вывод пользователя по его id
     Optional<User> getUser(Long id);
+
+    // Запрос на добавление в друзья, у обоих пользователей дружба в статусе ожидания.
+    // Возвращает false, если у обоих связь уже была в ожидании и ничего не изменилось
+    boolean addFriend(Long id, Long friendId);
+
+    // Удаление пользователей из друзей друг у друга, false - если связи не было
+    boolean removeFriend(Long id, Long friendId);
+
+    // Подтверждение дружбы, если запрос был отправлен ранее; false - если подтверждать нечего
+    boolean confirmFriendship(Long id, Long friendId);
+
+    // Отсортированные по возрастанию id друзей с подтверждённой дружбой
+    long[] getConfirmedFriendIds(Long id);
+
+    // Вывод друзей пользователя с подтверждённой дружбой в порядке возрастания id
+    List<User> findFriends(Long id);
+
+    // Вывод общих друзей двух пользователей в порядке возрастания id
+    List<User> findCommonFriends(Long id, Long otherId);
+
+    // Возможные друзья: друзья друзей по убыванию числа общих друзей, без уже существующих связей
+    List<User> findFriendSuggestions(Long id, int count);
+
+    // Пакетное добавление пользователей, id выделяются одним блоком.
+    // Результаты идут в порядке переданного списка, занятый email отклоняет только свой элемент
+    List<BatchResult> createAll(List<User> users);
+
+    // Id из переданных, под которыми в коллекции есть пользователи
+    Set<Long> findExistingIds(Collection<Long> ids);
+
+    // Пакетная отправка запросов в друзья за один проход по хранилищу, пользователи должны существовать.
+    // Возвращает запросы, которые что-то изменили, в порядке переданных
+    List<FriendRequest> addFriends(Collection<FriendRequest> requests);
 }
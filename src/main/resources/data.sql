@@ -0,0 +1,6 @@
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (1, 'Комедия');
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (2, 'Драма');
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (3, 'Мультфильм');
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (4, 'Триллер');
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (5, 'Документальный');
+MERGE INTO genres (genre_id, name) KEY (genre_id) VALUES (6, 'Боевик');
@@ -0,0 +1,52 @@
+CREATE TABLE IF NOT EXISTS genres (
+    genre_id BIGINT PRIMARY KEY,
+    name     VARCHAR(64) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    film_id      BIGINT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200) NOT NULL,
+    release_date DATE         NOT NULL,
+    duration     INT          NOT NULL,
+    rating       VARCHAR(8)   NOT NULL,
+    likes_count  INT          NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS films_rating_popularity_idx ON films (rating, likes_count DESC, film_id);
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+
+CREATE TABLE IF NOT EXISTS film_genres (
+    film_id  BIGINT NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
+    genre_id BIGINT NOT NULL REFERENCES genres (genre_id),
+    PRIMARY KEY (film_id, genre_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_genres_genre_idx ON film_genres (genre_id);
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id   BIGINT PRIMARY KEY,
+    email     VARCHAR(255) NOT NULL,
+    email_key VARCHAR(255) NOT NULL UNIQUE,
+    login     VARCHAR(255) NOT NULL,
+    name      VARCHAR(255),
+    birthday  DATE         NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (film_id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT      NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    friend_id BIGINT      NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    status    VARCHAR(16) NOT NULL,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
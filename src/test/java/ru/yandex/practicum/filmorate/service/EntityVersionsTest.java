@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class EntityVersionsTest {
+
+    private final EntityVersions versions = new EntityVersions();
+
+    @Test
+    void likeChangesCatalogOnlyWhenFilmReachesCachedPopularList() {
+        // Список из двух фильмов, у последнего 3 лайка: порог списка - 3
+        versions.buildPopular(2, () -> List.of(film(1, 5), film(2, 3)));
+        long catalog = versions.filmCatalog();
+        long film = versions.film(7);
+
+        versions.filmLikesChanged(7, () -> 2);
+        assertEquals(catalog, versions.filmCatalog());
+        assertNotEquals(film, versions.film(7));
+
+        versions.filmLikesChanged(7, () -> 3);
+        assertNotEquals(catalog, versions.filmCatalog());
+    }
+
+    @Test
+    void likeWithoutCachedListsKeepsCatalogAndNewListRecordsItsThreshold() {
+        long catalog = versions.filmCatalog();
+        versions.filmLikesChanged(1, () -> 100);
+        assertEquals(catalog, versions.filmCatalog());
+
+        versions.buildPopular(1, () -> List.of(film(1, 100)));
+        versions.filmLikesChanged(1, () -> 101);
+        long afterChange = versions.filmCatalog();
+        assertNotEquals(catalog, afterChange);
+        // Смена версии сбрасывает порог: пока список не построен заново, лайки каталог не меняют
+        versions.filmLikesChanged(2, () -> 500);
+        assertEquals(afterChange, versions.filmCatalog());
+    }
+
+    @Test
+    void shortListIsChangedByAnyLike() {
+        // В неполный список вошли все подходящие фильмы: любой лайк может изменить его
+        versions.buildPopular(10, () -> List.of(film(1, 5)));
+        long catalog = versions.filmCatalog();
+        versions.filmLikesChanged(2, () -> 1);
+        assertNotEquals(catalog, versions.filmCatalog());
+    }
+
+    @Test
+    void likeDuringListBuildChangesCatalog() {
+        long catalog = versions.filmCatalog();
+        versions.buildPopular(1, () -> {
+            versions.filmLikesChanged(2, () -> 0);
+            return List.of(film(1, 50));
+        });
+        assertNotEquals(catalog, versions.filmCatalog());
+    }
+
+    @Test
+    void filmChangeAlwaysChangesCatalog() {
+        long catalog = versions.filmCatalog();
+        versions.filmChanged(1);
+        assertNotEquals(catalog, versions.filmCatalog());
+    }
+
+    private static Film film(long id, int likes) {
+        Film film = new Film("Фильм " + id, "Описание", LocalDate.of(2000, 1, 1), MotionPictureAssociation.PG);
+        film.setIdFilm(id);
+        for (long userId = 1; userId <= likes; userId++) {
+            film.getLikes().add(userId);
+        }
+        return film;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmValidatorTest {
+
+    private static final LocalDate FIRST_FILM_DATE = LocalDate.of(1895, 12, 25);
+
+    private final Validator beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final FilmValidator filmValidator = new FilmValidator();
+
+    @Test
+    void fieldRulesMatchBeanValidationAndReleaseDateRule() {
+        List<String> names = List.of("Фильм", "", " ", "\t", "ф".repeat(255), "ф".repeat(256));
+        List<String> descriptions = List.of("", "Описание", "д".repeat(200), "д".repeat(201));
+        List<LocalDate> releaseDates = List.of(FIRST_FILM_DATE.minusDays(1), FIRST_FILM_DATE,
+                FIRST_FILM_DATE.plusDays(1), LocalDate.of(2000, 1, 1), LocalDate.now(), LocalDate.now().plusDays(1));
+        List<Integer> durations = List.of(-5, 0, 1, 120);
+        for (String name : names) {
+            for (String description : descriptions) {
+                for (LocalDate releaseDate : releaseDates) {
+                    for (int duration : durations) {
+                        Film film = new Film(name, description, releaseDate, MotionPictureAssociation.PG_13);
+                        film.setDuration(duration);
+                        // Правило о дате первого фильма проверялось отдельно от аннотаций и в них не входит
+                        boolean expected = beanValidator.validate(film).isEmpty()
+                                && releaseDate.isAfter(FIRST_FILM_DATE);
+                        assertEquals(expected, filmValidator.findError(film) == null,
+                                "name length = " + name.length() + ", description length = " + description.length()
+                                        + ", releaseDate = " + releaseDate + ", duration = " + duration);
+                    }
+                }
+            }
+        }
+    }
+}
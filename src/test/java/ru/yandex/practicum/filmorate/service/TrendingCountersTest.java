@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TrendingCountersTest {
+
+    @Test
+    void likesLeaveWindowWhenBucketsRotate() {
+        MutableClock clock = new MutableClock();
+        TrendingCounters counters = new TrendingCounters(Duration.ofHours(1), Duration.ofHours(24), clock);
+
+        counters.liked(1);
+        counters.liked(1);
+        counters.liked(2);
+        clock.advance(Duration.ofHours(5));
+        counters.liked(2);
+        counters.liked(2);
+        counters.liked(3);
+
+        assertArrayEquals(new long[]{2, 1, 3}, counters.top(Duration.ofHours(24), 10));
+        assertArrayEquals(new long[]{2, 3}, counters.top(Duration.ofHours(1), 10));
+        assertArrayEquals(new long[]{2}, counters.top(Duration.ofHours(24), 1));
+
+        // Интервал первых лайков вышел из окна, а его ячейка кольца занята новым интервалом
+        clock.advance(Duration.ofHours(20));
+        counters.liked(3);
+        assertArrayEquals(new long[]{2, 3}, counters.top(Duration.ofHours(24), 10));
+
+        clock.advance(Duration.ofDays(2));
+        assertArrayEquals(new long[0], counters.top(Duration.ofHours(24), 10));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:30:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class UserServiceFriendListVersionsTest {
+
+    private final EntityVersions versions = new EntityVersions();
+    private final UserService userService = new UserService(new InMemoryUserStorage(), new UserValidator(),
+            versions, new ActivityFeed(10));
+
+    private final long first = userService.create(user("first")).getIdUser();
+    private final long second = userService.create(user("second")).getIdUser();
+    private final long firstFriend = userService.create(user("friend")).getIdUser();
+    private final long stranger = userService.create(user("stranger")).getIdUser();
+
+    @Test
+    void confirmAndRemoveChangeBothSidesAndFriendsOfBoth() {
+        befriend(first, firstFriend);
+        userService.addFriend(first, second);
+
+        long[] before = lists();
+        userService.confirmationOfFriendship(second, first);
+        assertChanged(before, first, second, firstFriend);
+
+        before = lists();
+        userService.removeFriend(first, second);
+        assertChanged(before, first, second, firstFriend);
+
+        before = lists();
+        userService.removeFriend(first, second);
+        assertChanged(before);
+    }
+
+    @Test
+    void profileEditChangesOnlyListsShowingUser() {
+        befriend(first, firstFriend);
+        long[] before = lists();
+        User edited = user("first");
+        edited.setIdUser(first);
+        edited.setName("Новое имя");
+        edited.setFriendship(userService.getUser(first).orElseThrow().getFriendship());
+        userService.update(edited);
+        assertChanged(before, firstFriend);
+    }
+
+    private void befriend(long id, long friendId) {
+        userService.addFriend(id, friendId);
+        userService.confirmationOfFriendship(friendId, id);
+    }
+
+    private long[] lists() {
+        return new long[]{versions.friendList(first), versions.friendList(second),
+                versions.friendList(firstFriend), versions.friendList(stranger)};
+    }
+
+    // Изменились версии списков ровно указанных пользователей
+    private void assertChanged(long[] before, long... changed) {
+        long[] ids = {first, second, firstFriend, stranger};
+        long[] after = lists();
+        for (int i = 0; i < ids.length; i++) {
+            boolean expected = false;
+            for (long id : changed) {
+                expected |= id == ids[i];
+            }
+            if (expected) {
+                assertNotEquals(before[i], after[i], "список пользователя " + ids[i]);
+            } else {
+                assertEquals(before[i], after[i], "список пользователя " + ids[i]);
+            }
+        }
+    }
+
+    private static User user(String login) {
+        return new User(login + "@mail.ru", login, LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserValidatorTest {
+
+    private final Validator beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final UserValidator userValidator = new UserValidator();
+
+    @Test
+    void emailAndLoginRulesMatchBeanValidation() {
+        List<String> emails = List.of("", "user@mail.ru", "first.last+tag@sub.mail.ru", "user@localhost",
+                "юзер@почта.рф", "o'neil@mail.ru", "user@[192.168.0.1]", "user@[300.1.1.1]", "user@[1.1.1]",
+                "user@[1.1.1.1111]", "@mail.ru", "user@", "user", ".user@mail.ru", "user.@mail.ru",
+                "us..er@mail.ru", "user@mail..ru", "user@-mail.ru", "user@mail-.ru", "user@ma_il.ru",
+                "user@ma--il.ru", "USER@MAIL.RU", "user@mail.ru-", "us er@mail.ru", "user@mail.ru.", "a@b@mail.ru",
+                // Корректный по формату, но длиннее столбца email
+                "u".repeat(64) + "@" + ("d".repeat(63) + ".").repeat(3) + "ru");
+        List<String> logins = List.of("login", "", " ", "two words", "tab\tlogin", "логин", "л".repeat(255),
+                "л".repeat(256));
+        for (String email : emails) {
+            for (String login : logins) {
+                User user = new User(email, login, LocalDate.of(1990, 1, 1));
+                assertEquals(beanValidator.validate(user).isEmpty(), userValidator.findError(user) == null,
+                        "email = '" + email + "', login length = " + login.length());
+            }
+        }
+    }
+}
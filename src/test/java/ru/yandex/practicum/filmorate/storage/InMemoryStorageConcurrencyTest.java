@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InMemoryStorageConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int USERS = 2_000;
+    private static final int FILMS = 16;
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            filmIds.add(filmStorage.create(film(i)).getIdFilm());
+        }
+
+        runConcurrently(thread -> {
+            for (long userId = thread; userId < USERS; userId += THREADS) {
+                for (Long filmId : filmIds) {
+                    filmStorage.addLike(filmId, userId);
+                    filmStorage.addLike(filmId, userId + USERS);
+                    filmStorage.removeLike(filmId, userId + USERS);
+                }
+            }
+        });
+
+        for (Long filmId : filmIds) {
+            assertEquals(USERS, filmStorage.getFilm(filmId).orElseThrow().getLikes().size());
+        }
+        assertEquals(USERS, filmStorage.getPopular(1).getFirst().getLikes().size());
+    }
+
+    @Test
+    void concurrentFriendshipsAreNotLost() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Long hubId = userStorage.create(user(0)).getIdUser();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            userIds.add(userStorage.create(user(i)).getIdUser());
+        }
+
+        runConcurrently(thread -> {
+            for (int i = thread; i < userIds.size(); i += THREADS) {
+                userStorage.addFriend(userIds.get(i), hubId);
+                userStorage.confirmFriendship(hubId, userIds.get(i));
+            }
+        });
+
+        User hub = userStorage.getUser(hubId).orElseThrow();
+        assertEquals(USERS, hub.getFriendship().size());
+        assertEquals(USERS, hub.getFriendship().values().stream()
+                .filter(status -> status == FriendshipStatus.CONFIRMED)
+                .count());
+        for (Long userId : userIds) {
+            assertEquals(FriendshipStatus.CONFIRMED,
+                    userStorage.getUser(userId).orElseThrow().getFriendship().get(hubId));
+        }
+    }
+
+    @Test
+    void rejectedCreatesDoNotConsumeIds() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Long firstId = userStorage.create(user(0)).getIdUser();
+
+        assertThrows(ValidationException.class, () -> userStorage.create(user(0)));
+        List<BatchResult> results = userStorage.createAll(List.of(user(0), user(1), user(1)));
+
+        assertEquals(List.of(false, true, false), results.stream().map(BatchResult::isSuccess).toList());
+        assertEquals(firstId + 1, results.get(1).getId());
+        assertEquals(firstId + 2, userStorage.create(user(2)).getIdUser());
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int number = thread;
+                Callable<Void> callable = () -> {
+                    start.await();
+                    task.run(number);
+                    return null;
+                };
+                futures.add(executor.submit(callable));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Film film(int number) {
+        Film film = new Film("Фильм " + number, "Описание", LocalDate.of(2000, 1, 1),
+                MotionPictureAssociation.PG);
+        film.setDuration(100);
+        return film;
+    }
+
+    private User user(int number) {
+        return new User("user" + number + "@mail.ru", "user" + number, LocalDate.of(1990, 1, 1));
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:filmorate-test;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("jdbc")
+class JdbcStorageIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void filmLikeAndFriendshipRoundTrip() {
+        Long first = userService.create(user("round-first")).getIdUser();
+        Long second = userService.create(user("round-second")).getIdUser();
+        Long filmId = filmService.create(film("Фильм с лайком")).getIdFilm();
+
+        filmService.addLikes(filmId, first);
+        filmService.addLikes(filmId, first);
+        assertEquals(Set.of(first), filmService.getFilm(filmId).orElseThrow().getLikes());
+        assertEquals(filmId, filmService.topFilms(1).getFirst().getIdFilm());
+
+        userService.addFriend(first, second);
+        assertTrue(userService.findAllFriendsUser(first).isEmpty());
+        userService.confirmationOfFriendship(second, first);
+        assertEquals(List.of(second), userService.findAllFriendsUser(first).stream().map(User::getIdUser).toList());
+        assertEquals(List.of(first), userService.findAllFriendsUser(second).stream().map(User::getIdUser).toList());
+        userService.removeFriend(first, second);
+        assertTrue(userService.findAllFriendsUser(first).isEmpty());
+        assertTrue(userService.findAllFriendsUser(second).isEmpty());
+    }
+
+    @Test
+    void batchLongerThanInListLimitIsCreatedAndFound() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < InListChunks.LIMIT + 500; i++) {
+            users.add(user("long-batch-" + i));
+        }
+        List<Long> ids = userService.createAll(users).stream().map(BatchResult::getId).toList();
+        assertEquals(users.size(), userService.findExistingIds(ids).size());
+    }
+
+    @Test
+    void concurrentBatchesWithSameEmailsCreateEachUserOnce() throws Exception {
+        int size = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<BatchResult>>> batches = new ArrayList<>();
+            for (int thread = 0; thread < 2; thread++) {
+                batches.add(executor.submit(() -> {
+                    List<User> users = new ArrayList<>();
+                    for (int i = 0; i < size; i++) {
+                        users.add(user("clash-" + i));
+                    }
+                    return userService.createAll(users);
+                }));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (Future<List<BatchResult>> batch : batches) {
+                results.addAll(batch.get());
+            }
+            // Каждый email достаётся ровно одному пакету, второй получает отказ, а не ошибку всего пакета
+            List<Long> created = results.stream().filter(BatchResult::isSuccess).map(BatchResult::getId).toList();
+            assertEquals(size, created.size());
+            assertEquals(size, userService.findExistingIds(created).size());
+            Set<String> emails = created.stream()
+                    .map(id -> userService.getUser(id).orElseThrow().getEmail())
+                    .collect(Collectors.toSet());
+            assertEquals(size, emails.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film(name, "Описание", LocalDate.of(2000, 1, 1), MotionPictureAssociation.PG_13);
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String login) {
+        return new User(login + "@mail.ru", login, LocalDate.of(1990, 1, 1));
+    }
+}
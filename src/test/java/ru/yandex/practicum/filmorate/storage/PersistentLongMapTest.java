@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PersistentLongMapTest {
+
+    @Test
+    void versionsMatchSortedMapAndStayUnchanged() {
+        SplittableRandom random = new SplittableRandom(42);
+        TreeMap<Long, String> expected = new TreeMap<>();
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+        PersistentLongMap<String> halfway = null;
+        TreeMap<Long, String> expectedHalfway = null;
+        for (int i = 0; i < 5_000; i++) {
+            // Ключи разного масштаба, чтобы дерево росло вверх, и повторы для замены значений
+            long key = switch (i % 3) {
+                case 0 -> random.nextLong(100);
+                case 1 -> random.nextLong(1_000_000);
+                default -> random.nextLong(Long.MAX_VALUE);
+            };
+            map = map.with(key, "v" + i);
+            expected.put(key, "v" + i);
+            if (i == 2_500) {
+                halfway = map;
+                expectedHalfway = new TreeMap<>(expected);
+            }
+        }
+
+        assertSameContent(expected, map);
+        assertSameContent(expectedHalfway, halfway);
+        assertNull(map.get(-1));
+
+        long after = expected.keySet().stream().skip(100).findFirst().orElseThrow();
+        List<String> tail = new ArrayList<>();
+        Iterator<String> iterator = map.valuesAfter(after);
+        while (iterator.hasNext()) {
+            tail.add(iterator.next());
+        }
+        assertEquals(new ArrayList<>(expected.tailMap(after, false).values()), tail);
+    }
+
+    private static void assertSameContent(TreeMap<Long, String> expected, PersistentLongMap<String> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage.edge;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EdgeCollectionsTest {
+
+    @Test
+    void setMatchesSortedSetWhileBlocksSplitAndEmpty() {
+        SplittableRandom random = new SplittableRandom(42);
+        TreeSet<Long> expected = new TreeSet<>();
+        LongArraySet set = new LongArraySet();
+        for (int i = 0; i < 20_000; i++) {
+            // Сначала в основном вставки, чтобы блоки делились, затем в основном удаления, чтобы они пустели
+            long id = random.nextLong(5_000);
+            boolean insert = random.nextInt(100) < (i < 12_000 ? 80 : 20);
+            assertEquals(insert ? expected.add(id) : expected.remove(id), insert ? set.add(id) : set.remove(id));
+        }
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toSortedArray());
+        for (long id = 0; id < 5_000; id++) {
+            assertEquals(expected.contains(id), set.contains(id));
+        }
+    }
+
+    @Test
+    void friendshipMapMatchesSortedMap() {
+        SplittableRandom random = new SplittableRandom(7);
+        TreeMap<Long, FriendshipStatus> expected = new TreeMap<>();
+        PackedFriendshipMap map = new PackedFriendshipMap();
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextLong(3_000);
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                assertEquals(expected.put(id, FriendshipStatus.PENDING), map.put(id, FriendshipStatus.PENDING));
+            } else if (operation < 8) {
+                assertEquals(expected.put(id, FriendshipStatus.CONFIRMED), map.put(id, FriendshipStatus.CONFIRMED));
+            } else {
+                assertEquals(expected.remove(id), map.remove(id));
+            }
+        }
+        assertEquals(expected, new TreeMap<>(map));
+        assertEquals(expected, new TreeMap<>(new PackedFriendshipMap(expected)));
+        long[] confirmed = expected.entrySet().stream()
+                .filter(entry -> entry.getValue() == FriendshipStatus.CONFIRMED)
+                .mapToLong(entry -> entry.getKey())
+                .toArray();
+        assertArrayEquals(confirmed, map.confirmedIds());
+    }
+}
@@ -0,0 +1,211 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.MotionPictureAssociation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistenceRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void stateIsRestoredFromSnapshotAndJournalTail() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        WriteAheadLog journal = WriteAheadLog.open(directory, 1, true);
+        filmStorage.attachJournal(journal);
+        userStorage.attachJournal(journal);
+
+        Long first = userStorage.create(user("first")).getIdUser();
+        Long second = userStorage.create(user("second")).getIdUser();
+        Long filmId = filmStorage.create(film("Первый фильм")).getIdFilm();
+        filmStorage.addLike(filmId, first);
+        userStorage.addFriend(first, second);
+
+        long firstSegment = journal.rotate();
+        SnapshotFile.write(directory, firstSegment, filmStorage.findAll(), userStorage.findAll());
+
+        filmStorage.addLike(filmId, second);
+        filmStorage.removeLike(filmId, first);
+        userStorage.confirmFriendship(second, first);
+        Film renamed = film("Новое название");
+        renamed.setIdFilm(filmId);
+        renamed.setLikes(Set.of(second));
+        filmStorage.update(renamed);
+        journal.close();
+
+        InMemoryFilmStorage restoredFilms = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        assertEquals(firstSegment, PersistenceManager.recover(directory, restoredFilms, restoredUsers));
+
+        Film restored = restoredFilms.getFilm(filmId).orElseThrow();
+        assertEquals("Новое название", restored.getNameFilm());
+        assertEquals(Set.of(second), restored.getLikes());
+        assertEquals(Map.of(second, FriendshipStatus.CONFIRMED),
+                Map.copyOf(restoredUsers.getUser(first).orElseThrow().getFriendship()));
+        assertEquals(filmId + 1, restoredFilms.create(film("Следующий")).getIdFilm());
+    }
+
+    @Test
+    void tornRecordAtJournalTailIsDropped() throws IOException {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        WriteAheadLog journal = WriteAheadLog.open(directory, 1, true);
+        userStorage.attachJournal(journal);
+        userStorage.create(user("first"));
+        userStorage.create(user("second"));
+        journal.close();
+
+        Path segment = directory.resolve("wal-1.log");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        PersistenceManager.recover(directory, new InMemoryFilmStorage(), restoredUsers);
+        assertEquals(1, restoredUsers.findAll().size());
+    }
+
+    @Test
+    void recordWithWrongElementCountIsSkipped() throws IOException {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        WriteAheadLog journal = WriteAheadLog.open(directory, 1, true);
+        userStorage.attachJournal(journal);
+        userStorage.create(user("first"));
+        journal.close();
+
+        // Контрольная сумма верна, но объявлено больше друзей, чем записано
+        BinaryWriter out = new BinaryWriter(256);
+        out.putRecord(WriteAheadLog.USER_SAVED, writer -> {
+            writer.putLong(5);
+            writer.putString("broken@mail.ru");
+            writer.putString("broken");
+            writer.putString("broken");
+            writer.putLong(LocalDate.of(1990, 1, 1).toEpochDay());
+            writer.putInt(3);
+            writer.putLong(1);
+            writer.putByte(FriendshipStatus.CONFIRMED.ordinal());
+        });
+        User second = user("second");
+        second.setIdUser(2L);
+        out.putRecord(WriteAheadLog.USER_SAVED, writer -> EntityCodec.writeUser(writer, second));
+        try (FileChannel channel = FileChannel.open(directory.resolve("wal-1.log"), StandardOpenOption.APPEND)) {
+            out.writeTo(channel);
+        }
+
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        PersistenceManager.recover(directory, new InMemoryFilmStorage(), restoredUsers);
+        assertEquals(2, restoredUsers.findAll().size());
+        assertTrue(restoredUsers.getUser(5L).isEmpty());
+    }
+
+    @Test
+    void recordWithFailedPayloadLeavesNoTrace() throws IOException {
+        WriteAheadLog journal = WriteAheadLog.open(directory, 1, true);
+        User broken = user("broken");
+        broken.setIdUser(1L);
+        broken.setFriendship(null);
+        assertThrows(NullPointerException.class, () -> journal.userSaved(broken));
+        User valid = user("valid");
+        valid.setIdUser(2L);
+        journal.sync(journal.userSaved(valid));
+        journal.close();
+
+        InMemoryUserStorage restoredUsers = new InMemoryUserStorage();
+        PersistenceManager.recover(directory, new InMemoryFilmStorage(), restoredUsers);
+        assertEquals("valid", restoredUsers.getUser(2L).orElseThrow().getLogin());
+    }
+
+    @Test
+    void mutationsAreRejectedAfterJournalFailure() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        Long filmId = filmStorage.create(film("Фильм")).getIdFilm();
+        Long userId = userStorage.create(user("first")).getIdUser();
+        Journal failed = new FailedJournal();
+        filmStorage.attachJournal(failed);
+        userStorage.attachJournal(failed);
+
+        assertThrows(UncheckedIOException.class, () -> filmStorage.addLike(filmId, userId));
+        assertThrows(UncheckedIOException.class, () -> userStorage.create(user("second")));
+        assertTrue(filmStorage.getFilm(filmId).orElseThrow().getLikes().isEmpty());
+        assertEquals(1, userStorage.findAll().size());
+    }
+
+    // Журнал, запись которого уже завершилась ошибкой: любое изменение хранилища должно быть отклонено до записи
+    private static final class FailedJournal implements Journal {
+
+        @Override
+        public void checkWritable() {
+            throw new UncheckedIOException("Журнал изменений недоступен для записи", new IOException("Диск заполнен"));
+        }
+
+        @Override
+        public long filmSaved(Film film) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long likeAdded(long filmId, long userId) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long likeRemoved(long filmId, long userId) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long userSaved(User user) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long friendAdded(long userId, long friendId) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long friendRemoved(long userId, long friendId) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public long friendshipConfirmed(long userId, long friendId) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+
+        @Override
+        public void sync(long position) {
+            throw new AssertionError("Изменение записано в журнал после сбоя");
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film(name, "Описание", LocalDate.of(2000, 1, 1), MotionPictureAssociation.PG_13);
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(String login) {
+        return new User(login + "@mail.ru", login, LocalDate.of(1990, 1, 1));
+    }
+}